@@ -0,0 +1,39 @@
+package com.n26.config;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertTrue;
+
+public class CoarseClockTest {
+
+    @Test
+    public void shouldFollowSystemClockWithoutTick() {
+        CoarseClock clock = new CoarseClock();
+        long before = System.currentTimeMillis();
+
+        long now = clock.millis();
+
+        assertTrue(now >= before && now <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void shouldAdvanceWithTick() throws InterruptedException {
+        CoarseClock clock = new CoarseClock(Duration.ofMillis(5));
+        try {
+            long start = clock.millis();
+            Thread.sleep(100);
+
+            assertTrue("Ticked reading should move on", clock.millis() - start >= 50);
+            assertTrue("Ticked reading should never lead the system clock", clock.millis() <= System.currentTimeMillis());
+        } finally {
+            clock.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeTick() {
+        new CoarseClock(Duration.ofMillis(-1));
+    }
+}
@@ -0,0 +1,101 @@
+package com.n26.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.config.StatisticsProperties;
+import com.n26.metrics.TransactionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IngestionLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void shouldAdmitQueuedRequestOnceASlotIsReleased() throws Exception {
+        IngestionLimiter limiter = limiter(1, 1, Duration.ofSeconds(10));
+        assertTrue(limiter.acquire());
+
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(acquireQuietly(limiter));
+        while (registry.get("transactions.ingest.queued").gauge().value() < 1) {
+            TimeUnit.MILLISECONDS.sleep(1L);
+        }
+        assertFalse("Queue is full", limiter.acquire());
+        limiter.release();
+
+        assertTrue(queued.get(10L, TimeUnit.SECONDS));
+        assertEquals(1.0, registry.get("transactions.rejected").tag("reason", "overloaded").counter().count(), 0.0);
+    }
+
+    @Test
+    public void shouldRefuseQueuedRequestAfterTimeout() throws InterruptedException {
+        IngestionLimiter limiter = limiter(1, 1, Duration.ofMillis(10));
+        assertTrue(limiter.acquire());
+
+        assertFalse(limiter.acquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void shouldAdmitEverythingWithoutConcurrencyLimit() throws InterruptedException {
+        IngestionLimiter limiter = limiter(0, 0, Duration.ZERO);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.acquire());
+        }
+    }
+
+    @Test
+    public void shouldAnswerRefusedIngestionWith503AndRetryAfter() throws Exception {
+        IngestionLimiter limiter = limiter(1, 0, Duration.ZERO);
+        IngestionAdmissionFilter filter = new IngestionAdmissionFilter(limiter, new ObjectMapper());
+        limiter.acquire();
+
+        MockHttpServletResponse refused = new MockHttpServletResponse();
+        MockFilterChain refusedChain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("POST", "/transactions"), refused, refusedChain);
+        MockHttpServletResponse statistics = new MockHttpServletResponse();
+        MockFilterChain statisticsChain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/statistics"), statistics, statisticsChain);
+
+        assertEquals(503, refused.getStatus());
+        assertEquals("1", refused.getHeader("Retry-After"));
+        assertTrue(refused.getContentAsString().contains("Ingestion is at capacity"));
+        assertNull("Request must not reach the controller", refusedChain.getRequest());
+        assertEquals(200, statistics.getStatus());
+        assertNotNull("Other endpoints are not limited", statisticsChain.getRequest());
+    }
+
+    private IngestionLimiter limiter(final int concurrency, final int queue, final Duration timeout) {
+        StatisticsProperties properties = new StatisticsProperties();
+        properties.setIngestConcurrency(concurrency);
+        properties.setIngestQueue(queue);
+        properties.setIngestQueueTimeout(timeout);
+        return new IngestionLimiter(properties, new TransactionMetrics(registry), registry);
+    }
+
+    private static Supplier<Boolean> acquireQuietly(final IngestionLimiter limiter) {
+        return () -> {
+            try {
+                return limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        };
+    }
+}
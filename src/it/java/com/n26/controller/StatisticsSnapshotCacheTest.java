@@ -0,0 +1,54 @@
+package com.n26.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.domain.Statistics;
+import com.n26.service.StatisticsService;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static com.n26.repository.StatisticsRepository.EMPTY_STATISTICS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StatisticsSnapshotCacheTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+
+    private final StatisticsService statisticsService = mock(StatisticsService.class);
+    private final StatisticsSnapshotCache cache = new StatisticsSnapshotCache(statisticsService, new ObjectMapper());
+
+    @Test
+    public void shouldReuseBytesWhileVersionIsUnchanged() {
+        when(statisticsService.getVersion()).thenReturn(1L);
+        when(statisticsService.getStatistics(WINDOW)).thenReturn(EMPTY_STATISTICS);
+
+        byte[] first = cache.getJson(WINDOW);
+        byte[] second = cache.getJson(WINDOW);
+
+        assertSame(first, second);
+        assertEquals("{\"sum\":\"0.00\",\"avg\":\"0.00\",\"max\":\"0.00\",\"min\":\"0.00\",\"count\":0}",
+                new String(first, UTF_8));
+        verify(statisticsService, times(1)).getStatistics(WINDOW);
+    }
+
+    @Test
+    public void shouldRebuildBytesWhenVersionChanges() {
+        BigDecimal amount = new BigDecimal("10.00");
+        when(statisticsService.getVersion()).thenReturn(1L, 2L);
+        when(statisticsService.getStatistics(WINDOW)).thenReturn(EMPTY_STATISTICS,
+                new Statistics(amount, amount, amount, amount, 1));
+
+        cache.getJson(WINDOW);
+        String json = new String(cache.getJson(WINDOW), UTF_8);
+
+        assertEquals("{\"sum\":\"10.00\",\"avg\":\"10.00\",\"max\":\"10.00\",\"min\":\"10.00\",\"count\":1}", json);
+        verify(statisticsService, times(2)).getStatistics(WINDOW);
+    }
+}
@@ -0,0 +1,108 @@
+package com.n26.controller;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.config.StatisticsProperties.StreamMode;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StatisticsStreamTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final StatisticsSnapshotCache cache = mock(StatisticsSnapshotCache.class);
+
+    @Test
+    public void shouldEmitOnlyChangedStatistics() {
+        // equal content in a new array, as after an expired slot without visible change
+        when(cache.getJson(WINDOW)).thenReturn(bytes("{\"count\":0}"), bytes("{\"count\":0}"), bytes("{\"count\":1}"));
+
+        List<byte[]> frames = stream(StreamMode.ON_CHANGE).getFrames(WINDOW).take(2).collectList().block(TIMEOUT);
+
+        assertEquals("data:{\"count\":0}\n\n", new String(frames.get(0), UTF_8));
+        assertEquals("data:{\"count\":1}\n\n", new String(frames.get(1), UTF_8));
+    }
+
+    @Test
+    public void shouldRepeatFrameEveryInterval() {
+        when(cache.getJson(WINDOW)).thenReturn(bytes("{\"count\":0}"));
+
+        List<byte[]> frames = stream(StreamMode.EVERY_INTERVAL).getFrames(WINDOW).take(3).collectList().block(TIMEOUT);
+
+        assertEquals(3, frames.size());
+        assertSame("Unchanged statistics should not be encoded again", frames.get(0), frames.get(2));
+    }
+
+    @Test
+    public void shouldShareOneProducerBetweenSubscribers() {
+        when(cache.getJson(WINDOW)).thenReturn(bytes("{\"count\":0}"));
+        StatisticsStream stream = stream(StreamMode.EVERY_INTERVAL);
+
+        List<byte[]> frames = Flux.merge(
+                stream.getFrames(WINDOW).take(5),
+                stream.getFrames(WINDOW).take(5),
+                stream.getFrames(WINDOW).take(5))
+                .collectList()
+                .block(TIMEOUT);
+
+        assertEquals(15, frames.size());
+        // one read per tick, a few more ticks may pass until every subscriber is connected
+        verify(cache, atMost(8)).getJson(WINDOW);
+    }
+
+    @Test
+    public void shouldKeepDeliveringToBlockingWritersWhileOneIsStuck() throws InterruptedException {
+        when(cache.getJson(WINDOW)).thenReturn(bytes("{\"count\":0}"));
+        StatisticsStream stream = stream(StreamMode.EVERY_INTERVAL);
+        CountDownLatch clientGone = new CountDownLatch(1);
+        List<Disposable> stuck = new ArrayList<>();
+        try {
+            // more stuck writers than a shared pool sized by the processors could serve
+            for (int i = 0; i <= Runtime.getRuntime().availableProcessors(); i++) {
+                stuck.add(stream.getFramesForBlockingWriter(WINDOW).subscribe(frame -> await(clientGone)));
+            }
+
+            List<byte[]> frames = stream.getFramesForBlockingWriter(WINDOW).take(5).collectList().block(TIMEOUT);
+
+            assertEquals(5, frames.size());
+        } finally {
+            clientGone.countDown();
+            stuck.forEach(Disposable::dispose);
+            stream.shutdown();
+        }
+    }
+
+    private StatisticsStream stream(final StreamMode mode) {
+        StatisticsProperties properties = new StatisticsProperties();
+        properties.setStreamInterval(Duration.ofMillis(10));
+        properties.setStreamMode(mode);
+        return new StatisticsStream(cache, properties);
+    }
+
+    // a send which never returns until the client goes away
+    private static void await(final CountDownLatch clientGone) {
+        try {
+            clientGone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] bytes(final String json) {
+        return json.getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,115 @@
+package com.n26.controller;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.config.CoarseClock;
+import com.n26.controller.validation.TransactionClassifier;
+import com.n26.domain.BatchResult;
+import com.n26.domain.Transaction;
+import com.n26.metrics.TransactionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+public class TransactionBatchReaderTest {
+
+    @Test
+    public void shouldClassifyItemsOfJsonArray() throws IOException {
+        Fixture fixture = new Fixture();
+        long millis = System.currentTimeMillis() - 1_000L;
+        String body = "[" +
+                fixture.givenItem("\"12.3343\"", -1_000L) + "," +
+                fixture.givenItem("\"1.5\"", -61_000L) + "," +
+                fixture.givenItem("\"-1\"", 0L) + "," +
+                fixture.givenItem("\"One hundred\"", 0L) + "," +
+                fixture.givenItem("7", 5_000L) + "," +
+                "42" + "," +
+                // epoch millis and decimal epoch seconds, like a single transaction
+                "{\"amount\":\"3\",\"timestamp\":" + millis + "}," +
+                String.format("{\"amount\":\"3\",\"timestamp\":%d.%03d}", millis / 1000, millis % 1000) +
+                "]";
+
+        BatchResult result = fixture.read(body);
+
+        assertEquals(Collections.singletonList(1L), result.getTooOldItems());
+        assertEquals(Arrays.asList(2L, 3L, 4L, 5L), result.getInvalidItems());
+        assertEquals(3, result.getAccepted());
+        assertEquals(1, result.getTooOld());
+        assertEquals(4, result.getInvalid());
+        assertEquals(3, fixture.stored.size());
+        assertEquals(new BigDecimal("12.3343"), fixture.stored.get(0).getAmount());
+    }
+
+    @Test
+    public void shouldReadNewlineDelimitedObjects() throws IOException {
+        Fixture fixture = new Fixture();
+        String body = fixture.givenItem("\"1\"", -1_000L) + "\n" + fixture.givenItem("2.5", 0L) + "\n";
+
+        BatchResult result = fixture.read(body);
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(2, fixture.stored.size());
+    }
+
+    @Test
+    public void shouldStoreChunkAgainstTheReadingItWasClassifiedWith() throws IOException {
+        long now = System.currentTimeMillis();
+        // every further reading lies a whole window later, an item stored against it would be dropped
+        Fixture fixture = new Fixture(new CoarseClock() {
+            private long readings;
+
+            @Override
+            public long millis() {
+                return now + 61_000L * readings++;
+            }
+        });
+        String body = "[" + fixture.givenItem("\"1\"", -59_000L) + "," + fixture.givenItem("\"2\"", -1_000L) + "]";
+
+        BatchResult result = fixture.read(body);
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(Collections.singletonList(now), fixture.readings);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void shouldFailOnMalformedJson() throws IOException {
+        new Fixture().read("[" + new Fixture().givenItem("\"1\"", 0L) + ", Hello world!]");
+    }
+
+    private static final class Fixture {
+        final TransactionBatchReader reader;
+        List<Transaction> stored = new ArrayList<>();
+        List<Long> readings = new ArrayList<>();
+
+        Fixture() {
+            this(new CoarseClock());
+        }
+
+        Fixture(CoarseClock clock) {
+            reader = new TransactionBatchReader(new ObjectMapper(),
+                    new TransactionMetrics(new SimpleMeterRegistry()), new TransactionClassifier(), clock);
+        }
+
+        String givenItem(String amount, long offset) {
+            return "{\"amount\":" + amount + ",\"timestamp\":\"" + Instant.now().plusMillis(offset) + "\"}";
+        }
+
+        BatchResult read(String body) throws IOException {
+            return reader.read(new ByteArrayInputStream(body.getBytes(UTF_8)), (chunk, now) -> {
+                stored.addAll(chunk);
+                readings.add(now);
+            });
+        }
+    }
+}
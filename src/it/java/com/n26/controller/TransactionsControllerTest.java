@@ -0,0 +1,41 @@
+package com.n26.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.config.CoarseClock;
+import com.n26.config.StatisticsProperties;
+import com.n26.controller.validation.TransactionClassifier;
+import com.n26.metrics.TransactionMetrics;
+import com.n26.repository.StatisticsRepository;
+import com.n26.service.StatisticsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+public class TransactionsControllerTest {
+
+    private final StatisticsProperties properties = new StatisticsProperties();
+    private final CoarseClock clock = new CoarseClock();
+    private final TransactionMetrics transactionMetrics = new TransactionMetrics(new SimpleMeterRegistry());
+    private final TransactionClassifier classifier = new TransactionClassifier(properties);
+    private final MockMvc mockMvc = standaloneSetup(new TransactionsController(
+            new StatisticsService(new StatisticsRepository(properties)),
+            new TransactionBatchReader(new ObjectMapper(), transactionMetrics, classifier, clock),
+            classifier,
+            transactionMetrics,
+            clock)).build();
+
+    @Test
+    public void shouldAnswerMalformedBatchWithErrorBody() throws Exception {
+        mockMvc.perform(post("/transactions/batch").contentType(APPLICATION_JSON)
+                .content("[{\"amount\":\"1.00\"}, Hello world!]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Malformed batch"))
+                .andExpect(jsonPath("$.errors[0]").isNotEmpty());
+    }
+}
@@ -0,0 +1,139 @@
+package com.n26.controller.binary;
+
+import com.n26.config.CoarseClock;
+import com.n26.config.StatisticsProperties;
+import com.n26.controller.validation.TransactionClassifier;
+import com.n26.domain.Statistics;
+import com.n26.metrics.TransactionMetrics;
+import com.n26.repository.StatisticsRepository;
+import com.n26.service.StatisticsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import static com.n26.controller.binary.BinaryTransactionListener.ACK_SIZE;
+import static com.n26.controller.binary.BinaryTransactionListener.RECORD_SIZE;
+import static org.junit.Assert.assertEquals;
+
+public class BinaryTransactionListenerTest {
+
+    // amount the service fails to store
+    private static final long FAILING_AMOUNT = 13L;
+
+    private StatisticsService statisticsService;
+    private BinaryTransactionListener listener;
+    private SocketChannel client;
+
+    @Before
+    public void setUp() throws IOException {
+        StatisticsProperties properties = new StatisticsProperties();
+        properties.setBinaryPort(0);
+        CoarseClock clock = new CoarseClock();
+        statisticsService = new StatisticsService(new StatisticsRepository(properties)) {
+            @Override
+            public void addAll(final long[] timestamps, final long[] amountMicros, final int count, final long now) {
+                if (amountMicros[0] == FAILING_AMOUNT) throw new IllegalStateException("Storing failed");
+                super.addAll(timestamps, amountMicros, count, now);
+            }
+        };
+        listener = new BinaryTransactionListener(properties, statisticsService,
+                new TransactionClassifier(properties), new TransactionMetrics(new SimpleMeterRegistry()), clock);
+        client = SocketChannel.open(new InetSocketAddress("localhost", listener.getPort()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        listener.shutdown();
+    }
+
+    @Test
+    public void shouldStoreAcceptedRecordsAndAckBatch() throws IOException {
+        long now = System.currentTimeMillis();
+
+        send(batch(now, 12_334_300L, now - 61_000, 1_000_000L, now, -1L, now + 10_000, 1_000_000L));
+
+        assertAck(1, 1, 2);
+        Statistics statistics = statisticsService.getStatistics();
+        assertEquals(1, statistics.getCount());
+        assertEquals(new BigDecimal("12.33"), statistics.getSum());
+    }
+
+    @Test
+    public void shouldAckPipelinedBatchesInOrder() throws IOException {
+        long now = System.currentTimeMillis();
+        ByteBuffer first = batch(now, 1_000_000L, now, 2_000_000L);
+        ByteBuffer second = batch(now - 61_000, 1_000_000L);
+        ByteBuffer both = ByteBuffer.allocate(first.remaining() + second.remaining()).put(first).put(second);
+        both.flip();
+
+        send(both);
+
+        assertAck(2, 0, 0);
+        assertAck(0, 1, 0);
+        assertEquals(2, statisticsService.getStatistics().getCount());
+    }
+
+    @Test
+    public void shouldCloseConnectionOnInvalidRecordCount() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(BinaryTransactionListener.MAX_RECORDS + 1);
+        header.flip();
+
+        send(header);
+
+        assertEquals("Listener should close the connection", -1, client.read(ByteBuffer.allocate(ACK_SIZE)));
+    }
+
+    @Test
+    public void shouldKeepServingOtherConnectionsAfterAFailingBatch() throws IOException {
+        long now = System.currentTimeMillis();
+        SocketChannel failing = SocketChannel.open(new InetSocketAddress("localhost", listener.getPort()));
+        try {
+            ByteBuffer batch = batch(now, FAILING_AMOUNT);
+            while (batch.hasRemaining()) {
+                failing.write(batch);
+            }
+            assertEquals("Listener should close the connection", -1, failing.read(ByteBuffer.allocate(ACK_SIZE)));
+        } finally {
+            failing.close();
+        }
+
+        send(batch(now, 1_000_000L));
+
+        assertAck(1, 0, 0);
+    }
+
+    // pairs of timestamp and amount in micro-units
+    private static ByteBuffer batch(final long... values) {
+        ByteBuffer batch = ByteBuffer.allocate(4 + values.length / 2 * RECORD_SIZE).putInt(values.length / 2);
+        for (long value : values) {
+            batch.putLong(value);
+        }
+        batch.flip();
+        return batch;
+    }
+
+    private void send(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+
+    private void assertAck(final int accepted, final int tooOld, final int invalid) throws IOException {
+        ByteBuffer ack = ByteBuffer.allocate(ACK_SIZE);
+        while (ack.hasRemaining()) {
+            if (client.read(ack) < 0) throw new IOException("Connection closed before ack");
+        }
+        ack.flip();
+        assertEquals("accepted", accepted, ack.getInt());
+        assertEquals("too old", tooOld, ack.getInt());
+        assertEquals("invalid", invalid, ack.getInt());
+    }
+}
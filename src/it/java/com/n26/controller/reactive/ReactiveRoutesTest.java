@@ -0,0 +1,157 @@
+package com.n26.controller.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.config.CoarseClock;
+import com.n26.config.StatisticsProperties;
+import com.n26.controller.IngestionLimiter;
+import com.n26.controller.StatisticsSnapshotCache;
+import com.n26.controller.StatisticsStream;
+import com.n26.controller.StatisticsWindows;
+import com.n26.controller.TransactionBatchReader;
+import com.n26.controller.validation.TransactionClassifier;
+import com.n26.metrics.TransactionMetrics;
+import com.n26.repository.StatisticsRepository;
+import com.n26.service.StatisticsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+import static java.time.ZoneOffset.UTC;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+public class ReactiveRoutesTest {
+
+    private WebTestClient client;
+    private IngestionLimiter ingestionLimiter;
+
+    @Before
+    public void setUp() {
+        StatisticsProperties properties = new StatisticsProperties();
+        StatisticsService statisticsService = new StatisticsService(new StatisticsRepository(properties));
+        TransactionMetrics transactionMetrics = new TransactionMetrics(new SimpleMeterRegistry());
+        ObjectMapper objectMapper = new ObjectMapper();
+        CoarseClock clock = new CoarseClock();
+        TransactionClassifier classifier = new TransactionClassifier(properties);
+        ingestionLimiter = new IngestionLimiter(properties, transactionMetrics, new SimpleMeterRegistry());
+
+        TransactionsHandler transactionsHandler = new TransactionsHandler(statisticsService,
+                new TransactionBatchReader(objectMapper, transactionMetrics, classifier, clock),
+                transactionMetrics,
+                classifier,
+                ingestionLimiter,
+                clock);
+        StatisticsSnapshotCache snapshotCache = new StatisticsSnapshotCache(statisticsService, objectMapper);
+        StatisticsHandler statisticsHandler = new StatisticsHandler(statisticsService, snapshotCache,
+                new StatisticsWindows(statisticsService, properties),
+                new StatisticsStream(snapshotCache, properties));
+
+        client = WebTestClient.bindToRouterFunction(new ReactiveRoutes().routes(transactionsHandler, statisticsHandler))
+                .build();
+    }
+
+    @Test
+    public void shouldStoreTransactionAndReportStatistics() {
+        post("{\"amount\":\"12.3343\",\"timestamp\":\"" + now() + "\"}").expectStatus().isCreated();
+
+        client.get().uri("/statistics").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.sum").isEqualTo("12.33")
+                .jsonPath("$.count").isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReportStatisticsOfKeyNamedLikeAnotherRoute() {
+        post("{\"amount\":\"5\",\"timestamp\":\"" + now() + "\",\"key\":\"stream\"}").expectStatus().isCreated();
+
+        client.get().uri("/statistics/keys/stream").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.sum").isEqualTo("5.00")
+                .jsonPath("$.count").isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRejectLikeServletEndpoint() {
+        post("{\"amount\":\"1.00\",\"timestamp\":\"" + now().plusMinutes(1) + "\"}").expectStatus().isEqualTo(422);
+        post("{\"amount\":\"-1.00\",\"timestamp\":\"" + now() + "\"}").expectStatus().isEqualTo(422);
+        post("{\"amount\":\"one\",\"timestamp\":\"" + now() + "\"}").expectStatus().isEqualTo(422);
+        post("{\"amount\":\"1.00\",\"timestamp\":\"yesterday\"}").expectStatus().isEqualTo(422);
+        post("{\"amount\":\"1.00\",\"timestamp\":\"" + now().minusMinutes(2) + "\"}").expectStatus().isNoContent();
+        post("{\"timestamp\":\"" + now() + "\"}").expectStatus().isBadRequest();
+        post("{\"amount\":").expectStatus().isBadRequest();
+        post("").expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void shouldRefuseWithoutWaitingWhenIngestionIsAtCapacity() {
+        int taken = 0;
+        while (ingestionLimiter.tryAcquire()) {
+            taken++;
+        }
+
+        post("{\"amount\":\"1.00\",\"timestamp\":\"" + now() + "\"}")
+                .expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals("Retry-After", "1");
+
+        for (; taken > 0; taken--) {
+            ingestionLimiter.release();
+        }
+        post("{\"amount\":\"1.00\",\"timestamp\":\"" + now() + "\"}").expectStatus().isCreated();
+    }
+
+    @Test
+    public void shouldAcceptBatchAndWipe() {
+        client.post().uri("/transactions/batch").contentType(APPLICATION_JSON)
+                .syncBody("[{\"amount\":\"1.00\",\"timestamp\":\"" + now() + "\"}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.accepted").isEqualTo(1);
+
+        client.delete().uri("/transactions").exchange().expectStatus().isNoContent();
+
+        client.get().uri("/statistics").exchange()
+                .expectBody().jsonPath("$.count").isEqualTo(0);
+    }
+
+    @Test
+    public void shouldAnswerMalformedBatchWithErrorBody() {
+        client.post().uri("/transactions/batch").contentType(APPLICATION_JSON)
+                .syncBody("[{\"amount\":\"1.00\"}, Hello world!]")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Malformed batch")
+                .jsonPath("$.errors[0]").isNotEmpty();
+    }
+
+    @Test
+    public void shouldRejectUnknownWindow() {
+        client.get().uri("/statistics?window=7s").exchange().expectStatus().isBadRequest();
+        client.get().uri("/statistics?window=10s").exchange().expectStatus().isOk();
+    }
+
+    @Test
+    public void shouldStreamStatistics() {
+        String event = client.get().uri("/statistics/stream?window=10s").exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseBody()
+                .blockFirst(Duration.ofSeconds(5));
+
+        assertEquals("{\"sum\":\"0.00\",\"avg\":\"0.00\",\"max\":\"0.00\",\"min\":\"0.00\",\"count\":0}", event);
+    }
+
+    private WebTestClient.ResponseSpec post(final String body) {
+        return client.post().uri("/transactions").contentType(APPLICATION_JSON).syncBody(body).exchange();
+    }
+
+    private static ZonedDateTime now() {
+        return ZonedDateTime.now(UTC);
+    }
+}
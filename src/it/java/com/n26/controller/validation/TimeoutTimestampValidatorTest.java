@@ -1,12 +1,8 @@
 package com.n26.controller.validation;
 
+import com.n26.config.StatisticsProperties;
 import org.junit.Test;
 
-import java.time.OffsetDateTime;
-import java.time.ZonedDateTime;
-
-import static java.time.ZoneOffset.UTC;
-import static java.time.temporal.ChronoUnit.SECONDS;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -14,25 +10,25 @@ public class TimeoutTimestampValidatorTest {
 
     @Test
     public void shouldPassValidation() {
-        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        long now = System.currentTimeMillis();
         Fixture fixture = new Fixture();
 
-        boolean result = fixture.validator.isValid(now, null);
+        boolean result = fixture.validator.isValid(now, now);
 
         assertTrue("Current time should not be considered as expired", result);
     }
 
     @Test
     public void shouldFailValidation() {
-        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime().minus(61L, SECONDS);
+        long now = System.currentTimeMillis();
         Fixture fixture = new Fixture();
 
-        boolean result = fixture.validator.isValid(now, null);
+        boolean result = fixture.validator.isValid(now - 61_000L, now);
 
         assertFalse("Outdated time should be considered as expired", result);
     }
 
     private static final class Fixture {
-        TimeoutTimestampValidator validator = new TimeoutTimestampValidator();
+        TimeoutTimestampValidator validator = new TimeoutTimestampValidator(new StatisticsProperties());
     }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.n26.controller.validation;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.domain.Transaction;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+import static com.n26.metrics.TransactionMetrics.RejectionReason.FUTURE;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.MALFORMED;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.NEGATIVE;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.TOO_OLD;
+import static java.time.ZoneOffset.UTC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+
+public class TransactionClassifierTest {
+
+    private static final long NOW = 1_531_821_591_312L;
+
+    private final TransactionClassifier classifier = new TransactionClassifier();
+
+    @Test
+    public void shouldAcceptTransactionInsideWindow() {
+        assertNull(classifier.classify(transaction("12.3343", NOW), NOW));
+        assertNull(classifier.classify(transaction("0", NOW - 59_999), NOW));
+    }
+
+    @Test
+    public void shouldClassifyAgainstGivenReading() {
+        assertEquals(FUTURE, classifier.classify(transaction("1", NOW + 1), NOW));
+        assertEquals(TOO_OLD, classifier.classify(transaction("1", NOW - 60_000), NOW));
+        assertEquals(NEGATIVE, classifier.classify(transaction("-0.01", NOW), NOW));
+        assertEquals(MALFORMED, classifier.classify(new Transaction(null, timestamp(NOW)), NOW));
+        assertEquals(MALFORMED, classifier.classify(new Transaction(BigDecimal.ONE, null), NOW));
+    }
+
+    @Test
+    public void shouldTolerateSkewAndLateness() {
+        StatisticsProperties properties = new StatisticsProperties();
+        properties.setFutureSkew(Duration.ofMillis(200));
+        properties.setAllowedLateness(Duration.ofSeconds(5));
+        TransactionClassifier tolerant = new TransactionClassifier(properties);
+
+        assertNull(tolerant.classify(transaction("1", NOW + 200), NOW));
+        assertEquals(FUTURE, tolerant.classify(transaction("1", NOW + 201), NOW));
+        assertNull(tolerant.classify(transaction("1", NOW - 4_999), NOW));
+        assertEquals(TOO_OLD, tolerant.classify(transaction("1", NOW - 5_000), NOW));
+    }
+
+    @Test
+    public void shouldLetUnprocessableReasonsWin() {
+        // the precedence of the former bean validation responses
+        Transaction futureWithLongKey = new Transaction(BigDecimal.ONE, timestamp(NOW + 1), longKey());
+        Transaction oldWithLongKey = new Transaction(BigDecimal.ONE, timestamp(NOW - 60_000), longKey());
+
+        assertEquals(FUTURE, classifier.classify(futureWithLongKey, NOW));
+        assertEquals(TOO_OLD, classifier.classify(oldWithLongKey, NOW));
+        assertEquals(MALFORMED, classifier.classify(new Transaction(BigDecimal.ONE, timestamp(NOW), longKey()), NOW));
+    }
+
+    @Test
+    public void shouldMapReasonsToStatus() {
+        assertEquals(UNPROCESSABLE_ENTITY, TransactionClassifier.error(FUTURE).getHttpStatus());
+        assertEquals(UNPROCESSABLE_ENTITY, TransactionClassifier.error(NEGATIVE).getHttpStatus());
+        assertEquals(NO_CONTENT, TransactionClassifier.error(TOO_OLD).getHttpStatus());
+        assertEquals(BAD_REQUEST, TransactionClassifier.error(MALFORMED).getHttpStatus());
+    }
+
+    private static Transaction transaction(final String amount, final long timestamp) {
+        return new Transaction(new BigDecimal(amount), timestamp(timestamp));
+    }
+
+    private static ZonedDateTime timestamp(final long millis) {
+        return Instant.ofEpochMilli(millis).atZone(UTC);
+    }
+
+    private static String longKey() {
+        return new String(new char[Transaction.MAX_KEY_LENGTH + 1]).replace('\0', 'k');
+    }
+}
@@ -0,0 +1,100 @@
+package com.n26.domain;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+
+import static java.time.ZoneOffset.UTC;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TransactionDeserializerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    public void shouldReadFixedFormat() throws IOException {
+        Transaction transaction = read("{\"amount\":\"12.3343\",\"timestamp\":\"2018-07-17T09:59:51.312Z\",\"key\":\"k\"}");
+
+        assertEquals(new BigDecimal("12.3343"), transaction.getAmount());
+        assertEquals(ZonedDateTime.of(2018, 7, 17, 9, 59, 51, 312_000_000, UTC), transaction.getTimestamp());
+        assertEquals("k", transaction.getKey());
+    }
+
+    @Test
+    public void shouldReadOtherIsoFormatsInUtc() throws IOException {
+        Transaction transaction = read("{\"amount\":7,\"timestamp\":\"2018-07-17T11:59:51+02:00\"}");
+
+        assertEquals(new BigDecimal("7"), transaction.getAmount());
+        assertEquals(ZonedDateTime.of(2018, 7, 17, 9, 59, 51, 0, UTC), transaction.getTimestamp());
+    }
+
+    @Test
+    public void shouldReadEpochTimestamps() throws IOException {
+        assertEquals(ZonedDateTime.of(2018, 7, 17, 9, 59, 51, 312_000_000, UTC),
+                read("{\"timestamp\":1531821591312}").getTimestamp());
+        assertEquals(ZonedDateTime.of(2018, 7, 17, 9, 59, 51, 312_000_000, UTC),
+                read("{\"timestamp\":1531821591.312}").getTimestamp());
+    }
+
+    @Test
+    public void shouldTrimTimestamp() throws IOException {
+        assertEquals(ZonedDateTime.of(2018, 7, 17, 9, 59, 51, 312_000_000, UTC),
+                read("{\"timestamp\":\" 2018-07-17T09:59:51.312Z \"}").getTimestamp());
+    }
+
+    @Test
+    public void shouldReadBlankTimestampAsNull() throws IOException {
+        assertNull(read("{\"amount\":\"1\",\"timestamp\":\"  \"}").getTimestamp());
+    }
+
+    @Test
+    public void shouldReadMissingAndEmptyValuesAsNull() throws IOException {
+        Transaction transaction = read("{\"amount\":\" \",\"timestamp\":\"\"}");
+
+        assertNull(transaction.getAmount());
+        assertNull(transaction.getTimestamp());
+    }
+
+    @Test
+    public void shouldNameTypeOfUnparsableValues() {
+        // the exception handlers answer these with 422
+        assertThat(failure("{\"amount\":\"One hundred\"}"), containsString("BigDecimal"));
+        assertThat(failure("{\"timestamp\":\"2018-02-30T09:59:51.312Z\"}"), containsString("ZonedDateTime"));
+        assertThat(failure("{\"timestamp\":\"yesterday\"}"), containsString("ZonedDateTime"));
+    }
+
+    @Test
+    public void shouldNotNameTypeOfInvalidJson() {
+        // and these with 400
+        String message = failure("{\"amount\":\"1\",\"unknown\":true}");
+        assertThat(message, not(containsString("BigDecimal")));
+        assertThat(message, not(containsString("ZonedDateTime")));
+        assertThat(failure("[1]"), not(containsString("ZonedDateTime")));
+    }
+
+    private Transaction read(final String json) throws IOException {
+        return mapper.readValue(json, Transaction.class);
+    }
+
+    private String failure(final String json) {
+        try {
+            read(json);
+        } catch (JsonMappingException e) {
+            return e.getMessage();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        fail("Expected " + json + " to be rejected");
+        return null;
+    }
+}
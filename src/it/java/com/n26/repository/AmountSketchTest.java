@@ -0,0 +1,57 @@
+package com.n26.repository;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AmountSketchTest {
+
+    @Test
+    public void shouldEstimateQuantilesWithinRelativeAccuracy() {
+        AmountSketch sketch = new AmountSketch();
+        for (int i = 1; i <= 10_000; i++) {
+            sketch.add(BigDecimal.valueOf(i));
+        }
+
+        assertWithinAccuracy(5_000, sketch.getQuantile(0.5));
+        assertWithinAccuracy(9_000, sketch.getQuantile(0.9));
+        assertWithinAccuracy(9_900, sketch.getQuantile(0.99));
+    }
+
+    @Test
+    public void shouldMergeLikeSingleSketch() {
+        AmountSketch low = new AmountSketch();
+        AmountSketch high = new AmountSketch();
+        for (int i = 1; i <= 100; i++) {
+            low.add(new BigDecimal("0.5"));
+            high.add(new BigDecimal("2000"));
+        }
+        high.add(new BigDecimal("2000"));
+
+        AmountSketch merged = new AmountSketch();
+        merged.merge(low);
+        merged.merge(high);
+
+        assertEquals(201, merged.getCount());
+        assertWithinAccuracy(2000, merged.getQuantile(0.5));
+        assertWithinAccuracy(0.5, merged.getQuantile(0.1));
+    }
+
+    @Test
+    public void shouldBeEmptyAfterReset() {
+        AmountSketch sketch = new AmountSketch();
+        sketch.add(BigDecimal.TEN);
+
+        sketch.reset();
+
+        assertEquals(0, sketch.getCount());
+        assertNull(sketch.getQuantile(0.5));
+    }
+
+    private static void assertWithinAccuracy(double expected, BigDecimal estimate) {
+        assertEquals(expected, estimate.doubleValue(), expected * AmountSketch.RELATIVE_ACCURACY);
+    }
+}
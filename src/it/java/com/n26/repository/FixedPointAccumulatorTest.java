@@ -0,0 +1,59 @@
+package com.n26.repository;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static com.n26.repository.FixedPointAccumulator.NOT_REPRESENTABLE;
+import static org.junit.Assert.assertEquals;
+
+public class FixedPointAccumulatorTest {
+
+    @Test
+    public void shouldConvertToMicros() {
+        assertEquals(12_334_300L, FixedPointAccumulator.toMicros(new BigDecimal("12.3343")));
+        assertEquals(NOT_REPRESENTABLE, FixedPointAccumulator.toMicros(new BigDecimal("0.0000001")));
+        assertEquals(NOT_REPRESENTABLE, FixedPointAccumulator.toMicros(new BigDecimal("10000000000000")));
+    }
+
+    @Test
+    public void shouldConvertEveryScaleToMicros() {
+        assertEquals(-5_000_000L, FixedPointAccumulator.toMicros(new BigDecimal("-5")));
+        assertEquals(1L, FixedPointAccumulator.toMicros(new BigDecimal("0.000001")));
+        assertEquals(3_000_000_000L, FixedPointAccumulator.toMicros(new BigDecimal("3E+3")));
+        assertEquals(0L, FixedPointAccumulator.toMicros(new BigDecimal("0E+100")));
+        assertEquals(999_999_999_999_999_999L, FixedPointAccumulator.toMicros(new BigDecimal("999999999999.999999")));
+        assertEquals(NOT_REPRESENTABLE, FixedPointAccumulator.toMicros(new BigDecimal("1E+12")));
+        assertEquals(NOT_REPRESENTABLE, FixedPointAccumulator.toMicros(new BigDecimal("1E+2147483647")));
+    }
+
+    @Test
+    public void shouldSpillSumOnOverflow() {
+        FixedPointAccumulator accumulator = new FixedPointAccumulator();
+        BigDecimal amount = new BigDecimal("999999999999.999999");
+
+        for (int i = 0; i < 20; i++) {
+            accumulator.add(amount);
+        }
+
+        assertEquals("Sum should survive long overflow",
+                0, amount.multiply(BigDecimal.valueOf(20)).compareTo(accumulator.getSum()));
+        assertEquals(0, amount.compareTo(accumulator.getMax()));
+        assertEquals(0, amount.compareTo(accumulator.getMin()));
+    }
+
+    @Test
+    public void shouldMergeMicroAndExactParts() {
+        FixedPointAccumulator first = new FixedPointAccumulator();
+        first.add(new BigDecimal("5.5"));
+        FixedPointAccumulator second = new FixedPointAccumulator();
+        second.add(new BigDecimal("0.0000001"));
+
+        first.merge(second);
+
+        assertEquals(2, first.getCount());
+        assertEquals(0, new BigDecimal("5.5000001").compareTo(first.getSum()));
+        assertEquals(0, new BigDecimal("0.0000001").compareTo(first.getMin()));
+        assertEquals(0, new BigDecimal("5.5").compareTo(first.getMax()));
+    }
+}
@@ -0,0 +1,103 @@
+package com.n26.repository;
+
+import com.n26.domain.Statistics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.n26.repository.StatisticsRepository.EMPTY_STATISTICS;
+import static org.junit.Assert.assertEquals;
+
+public class KeyedStatisticsTest {
+
+    private static final long NOW = 1_531_821_591_312L;
+
+    @Test
+    public void shouldKeepStatisticsPerKey() {
+        KeyedStatistics keyed = new Fixture().keyed;
+        keyed.insert("a", NOW - 30_000L, new BigDecimal("10"), NOW);
+        keyed.insert("a", NOW, new BigDecimal("2.005"), NOW);
+        keyed.insert("b", NOW, new BigDecimal("7"), NOW);
+        keyed.insert("a", NOW - 60_000L, new BigDecimal("100"), NOW);
+
+        Statistics expectedStatistics = new Statistics(
+                new BigDecimal("12.01"),
+                new BigDecimal("6.00"),
+                new BigDecimal("10.00"),
+                new BigDecimal("2.01"),
+                2
+        );
+
+        assertEquals(expectedStatistics, keyed.getStatistics("a", NOW));
+        assertEquals(1, keyed.getStatistics("b", NOW).getCount());
+        assertEquals(EMPTY_STATISTICS, keyed.getStatistics("c", NOW));
+    }
+
+    @Test
+    public void shouldKeepPrecisionOfNotRepresentableAmounts() {
+        KeyedStatistics keyed = new Fixture().keyed;
+        keyed.insert("a", NOW, new BigDecimal("0.0049999999"), NOW);
+        keyed.insert("a", NOW, new BigDecimal("0.0000000001"), NOW);
+        keyed.insert("a", NOW, new BigDecimal("99999999999999999999.99"), NOW);
+
+        Statistics resultStatistics = keyed.getStatistics("a", NOW);
+
+        assertEquals(3, resultStatistics.getCount());
+        assertEquals(new BigDecimal("100000000000000000000.00"), resultStatistics.getSum());
+        assertEquals(new BigDecimal("0.00"), resultStatistics.getMin());
+    }
+
+    @Test
+    public void shouldEvictKeysWithEmptyWindow() {
+        KeyedStatistics keyed = new Fixture().keyed;
+        keyed.insert("a", NOW - 50_000L, BigDecimal.ONE, NOW);
+        keyed.insert("b", NOW, BigDecimal.ONE, NOW);
+
+        keyed.evictIdle(NOW + 20_000L);
+
+        assertEquals(1, keyed.size());
+        assertEquals(EMPTY_STATISTICS, keyed.getStatistics("a", NOW + 20_000L));
+        assertEquals(1, keyed.getStatistics("b", NOW + 20_000L).getCount());
+    }
+
+    @Test
+    public void shouldNotTrackKeysBeyondLimit() {
+        KeyedStatistics keyed = new KeyedStatistics(Duration.ofSeconds(60), Duration.ofSeconds(1), 2, new SimpleMeterRegistry());
+        keyed.insert("a", NOW, BigDecimal.ONE, NOW);
+        keyed.insert("b", NOW, BigDecimal.ONE, NOW);
+        keyed.insert("c", NOW, BigDecimal.ONE, NOW);
+        keyed.insert("a", NOW, BigDecimal.ONE, NOW);
+
+        assertEquals(2, keyed.size());
+        assertEquals(EMPTY_STATISTICS, keyed.getStatistics("c", NOW));
+        assertEquals(2, keyed.getStatistics("a", NOW).getCount());
+    }
+
+    @Test
+    public void shouldNotTrackKeysBeyondLimitWhenInsertedConcurrently() throws Exception {
+        KeyedStatistics keyed = new KeyedStatistics(Duration.ofSeconds(60), Duration.ofSeconds(1), 10, new SimpleMeterRegistry());
+
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int writer = 0; writer < 8; writer++) {
+            int first = writer * 1000;
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int i = first; i < first + 1000; i++) {
+                    keyed.insert("key-" + i, NOW, BigDecimal.ONE, NOW);
+                }
+            }));
+        }
+        CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).get(10L, TimeUnit.SECONDS);
+
+        assertEquals(10, keyed.size());
+    }
+
+    private static final class Fixture {
+        KeyedStatistics keyed = new KeyedStatistics(Duration.ofSeconds(60), Duration.ofSeconds(1), 100, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,67 @@
+package com.n26.repository;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+
+public class OffHeapSlotStoreTest {
+
+    @Test
+    public void shouldSpillAmountsOverflowingTheSum() {
+        OffHeapSlotStore store = new OffHeapSlotStore(10);
+        BigDecimal amount = new BigDecimal("900000000000.000000");
+        for (int i = 0; i < 11; i++) {
+            store.add(2, 42L, amount);
+        }
+        store.add(2, 42L, new BigDecimal("0.01"));
+
+        FixedPointAccumulator total = new FixedPointAccumulator();
+        store.fold(42L, 42L, total);
+
+        assertEquals(12, total.getCount());
+        assertEquals(0, new BigDecimal("9900000000000.01").compareTo(total.getSum()));
+        assertEquals(0, new BigDecimal("0.01").compareTo(total.getMin()));
+        assertEquals(0, amount.compareTo(total.getMax()));
+    }
+
+    @Test
+    public void shouldMergeBatchWithNotRepresentableAmounts() {
+        OffHeapSlotStore store = new OffHeapSlotStore(10);
+        FixedPointAccumulator batch = new FixedPointAccumulator();
+        batch.add(new BigDecimal("0.0000001"));
+        batch.add(new BigDecimal("5"));
+        store.add(2, 42L, new BigDecimal("10"));
+        store.merge(2, 42L, batch);
+
+        FixedPointAccumulator total = new FixedPointAccumulator();
+        store.fold(42L, 42L, total);
+
+        assertEquals(3, total.getCount());
+        assertEquals(0, new BigDecimal("15.0000001").compareTo(total.getSum()));
+        assertEquals(0, new BigDecimal("0.0000001").compareTo(total.getMin()));
+        assertEquals(0, BigDecimal.TEN.compareTo(total.getMax()));
+    }
+
+    @Test
+    public void shouldDropSpilledAmountsWhenSlotIsReused() {
+        OffHeapSlotStore store = new OffHeapSlotStore(10);
+        store.add(3, 3L, new BigDecimal("0.0000001"));
+        store.add(3, 13L, BigDecimal.ONE);
+
+        FixedPointAccumulator reused = new FixedPointAccumulator();
+        store.fold(13L, 13L, reused);
+        FixedPointAccumulator expired = new FixedPointAccumulator();
+        store.fold(3L, 3L, expired);
+
+        assertEquals(1, reused.getCount());
+        assertEquals(0, BigDecimal.ONE.compareTo(reused.getSum()));
+        assertEquals(0, expired.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMoreSlotsThanFitIntoBuffer() {
+        new OffHeapSlotStore(Integer.MAX_VALUE / OffHeapSlotStore.RECORD_SIZE + 1);
+    }
+}
@@ -0,0 +1,92 @@
+package com.n26.repository;
+
+import com.n26.domain.Statistics;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static com.n26.repository.StatisticsRepository.CALC_SCALE;
+import static com.n26.repository.StatisticsRepository.DEFAULT_ROUNDING;
+import static com.n26.repository.StatisticsRepository.EMPTY_STATISTICS;
+
+/**
+ * Brute-force model of the ring buffer: keeps every transaction and scans all of them per query.
+ * Follows the documented slot semantics, a transaction belongs to the slot of its timestamp and leaves
+ * a window together with that slot, i.e. up to one slot resolution early.
+ * Transactions ahead of the clock count once their slot is reached, with an allowed lateness
+ * transactions are only accepted into slots not ending before the watermark.
+ */
+final class ReferenceStatistics {
+
+    private final long slotMillis;
+    private final long retentionMillis;
+    private final long futureSkewMillis;
+    private final long latenessMillis;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    ReferenceStatistics(final long slotMillis, final long retentionMillis) {
+        this(slotMillis, retentionMillis, 0, 0);
+    }
+
+    ReferenceStatistics(final long slotMillis, final long retentionMillis,
+                        final long futureSkewMillis, final long latenessMillis) {
+        this.slotMillis = slotMillis;
+        this.retentionMillis = retentionMillis;
+        this.futureSkewMillis = futureSkewMillis;
+        this.latenessMillis = latenessMillis;
+    }
+
+    void insert(final long timestamp, final BigDecimal amount, final long now) {
+        long epoch = Math.floorDiv(timestamp, slotMillis);
+        if (epoch < oldestLiveEpoch(now, retentionMillis) || epoch > Math.floorDiv(now + futureSkewMillis, slotMillis)) return;
+        if (latenessMillis > 0 && (epoch + 1) * slotMillis <= now - latenessMillis) return;
+        entries.add(new Entry(epoch, amount));
+    }
+
+    Statistics getStatistics(final long windowMillis, final long now) {
+        long oldest = oldestLiveEpoch(now, windowMillis);
+        long newest = Math.floorDiv(now, slotMillis);
+        BigDecimal sum = BigDecimal.ZERO;
+        BigDecimal max = null;
+        BigDecimal min = null;
+        long count = 0;
+        for (Entry entry : entries) {
+            if (entry.epoch < oldest || entry.epoch > newest) continue;
+            sum = sum.add(entry.amount);
+            max = max == null ? entry.amount : max.max(entry.amount);
+            min = min == null ? entry.amount : min.min(entry.amount);
+            count++;
+        }
+        if (count == 0) return EMPTY_STATISTICS;
+
+        BigDecimal avg = sum.divide(BigDecimal.valueOf(count), CALC_SCALE, DEFAULT_ROUNDING);
+        return new Statistics(new Statistics(sum, avg, max, min, count));
+    }
+
+    /**
+     * Forgets transactions no window can contain any more
+     */
+    void expire(final long now) {
+        long oldest = oldestLiveEpoch(now, retentionMillis);
+        entries.removeIf(entry -> entry.epoch < oldest);
+    }
+
+    void wipe() {
+        entries.clear();
+    }
+
+    private long oldestLiveEpoch(final long now, final long windowMillis) {
+        return Math.floorDiv(now - windowMillis, slotMillis) + 1;
+    }
+
+    private static final class Entry {
+        private final long epoch;
+        private final BigDecimal amount;
+
+        private Entry(final long epoch, final BigDecimal amount) {
+            this.epoch = epoch;
+            this.amount = amount;
+        }
+    }
+}
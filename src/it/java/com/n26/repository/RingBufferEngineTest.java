@@ -0,0 +1,244 @@
+package com.n26.repository;
+
+import com.n26.domain.Statistics;
+import com.n26.domain.Transaction;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.IntFunction;
+
+import static com.n26.repository.StatisticsRepository.EMPTY_STATISTICS;
+import static java.time.ZoneOffset.UTC;
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(Parameterized.class)
+public class RingBufferEngineTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+    private static final Duration SHORT_WINDOW = Duration.ofSeconds(10);
+    private static final long START = 1_531_821_591_300L;
+
+    private final IntFunction<SlotStore> slotStoreFactory;
+
+    public RingBufferEngineTest(final String name, final IntFunction<SlotStore> slotStoreFactory) {
+        this.slotStoreFactory = slotStoreFactory;
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> slotStores() {
+        return Arrays.asList(
+                new Object[]{"fixed point", (IntFunction<SlotStore>) FixedPointSlotStore::new},
+                new Object[]{"big decimal", (IntFunction<SlotStore>) BigDecimalSlotStore::new},
+                new Object[]{"off heap", (IntFunction<SlotStore>) OffHeapSlotStore::new},
+                new Object[]{"striped", (IntFunction<SlotStore>) size -> new StripedSlotStore(size, 4, FixedPointSlotStore::new)});
+    }
+
+    @Test
+    public void shouldMergeTransactionsFromDifferentSlots() {
+        Fixture fixture = new Fixture();
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+
+        fixture.engine.insert(fixture.givenTransaction("10", now.minus(30L, SECONDS)), now.toInstant().toEpochMilli());
+        fixture.engine.insert(fixture.givenTransaction("2.005", now), now.toInstant().toEpochMilli());
+        fixture.engine.insert(fixture.givenTransaction("7", now.minus(45L, SECONDS)), now.toInstant().toEpochMilli());
+
+        Statistics expectedStatistics = new Statistics(
+                new BigDecimal("19.01"),
+                new BigDecimal("6.34"),
+                new BigDecimal("10.00"),
+                new BigDecimal("2.01"),
+                3
+        );
+
+        assertEquals("Statistics should fold all live slots", expectedStatistics, fixture.engine.getStatistics(WINDOW));
+    }
+
+    @Test
+    public void shouldSkipOutdatedTransaction() {
+        Fixture fixture = new Fixture();
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+
+        fixture.engine.insert(fixture.givenTransaction("10", now.minus(61L, SECONDS)), now.toInstant().toEpochMilli());
+
+        assertEquals("Outdated transaction should not be stored", EMPTY_STATISTICS, fixture.engine.getStatistics(WINDOW));
+    }
+
+    @Test
+    public void shouldInsertBatchWithoutPercentiles() {
+        Fixture fixture = new Fixture();
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+
+        fixture.engine.insertAll(Arrays.asList(
+                fixture.givenTransaction("10", now),
+                fixture.givenTransaction("20", now.minus(20L, SECONDS))), now.toInstant().toEpochMilli());
+
+        assertEquals("Batch should be stored", 2, fixture.engine.getStatistics(WINDOW).getCount());
+        assertEquals("Batch should be split by slot", 1, fixture.engine.getStatistics(SHORT_WINDOW).getCount());
+    }
+
+    @Test
+    public void shouldInsertMicroUnitBatchByRunsOfSlots() {
+        Fixture fixture = new Fixture();
+        long now = System.currentTimeMillis();
+        long[] timestamps = {now - 20_000, now - 20_000, now, now - 61_000, now};
+        long[] amounts = {10_000_000L, 5_000L, 2_000_000L, 99_000_000L, 7_500_000L};
+
+        fixture.engine.insertAll(timestamps, amounts, amounts.length, now);
+
+        Statistics expectedStatistics = new Statistics(
+                new BigDecimal("19.51"),
+                new BigDecimal("4.88"),
+                new BigDecimal("10.00"),
+                new BigDecimal("0.01"),
+                4
+        );
+        assertEquals("Outdated transaction should be skipped", expectedStatistics, fixture.engine.getStatistics(WINDOW));
+        assertEquals(2, fixture.engine.getStatistics(SHORT_WINDOW).getCount());
+    }
+
+    @Test
+    public void shouldClearAllSlotsOnWipe() {
+        Fixture fixture = new Fixture();
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        fixture.engine.insert(fixture.givenTransaction("10", now), now.toInstant().toEpochMilli());
+        fixture.engine.insert(fixture.givenTransaction("10", now.minus(10L, SECONDS)), now.toInstant().toEpochMilli());
+
+        fixture.engine.wipe();
+
+        assertEquals("Statistics should be empty after wiping", EMPTY_STATISTICS, fixture.engine.getStatistics(WINDOW));
+    }
+
+    @Test
+    public void shouldKeepPrecisionOfNotRepresentableAmounts() {
+        Fixture fixture = new Fixture();
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+
+        fixture.engine.insert(fixture.givenTransaction("0.0049999999", now), now.toInstant().toEpochMilli());
+        fixture.engine.insert(fixture.givenTransaction("0.0000000001", now), now.toInstant().toEpochMilli());
+        fixture.engine.insert(fixture.givenTransaction("99999999999999999999.99", now), now.toInstant().toEpochMilli());
+
+        Statistics expectedStatistics = new Statistics(
+                new BigDecimal("100000000000000000000.00"),
+                new BigDecimal("33333333333333333333.33"),
+                new BigDecimal("99999999999999999999.99"),
+                new BigDecimal("0.00"),
+                3
+        );
+
+        assertEquals("Statistics should be exact", expectedStatistics, fixture.engine.getStatistics(WINDOW));
+    }
+
+    @Test
+    public void shouldServeShorterWindowFromSameSlots() {
+        Fixture fixture = new Fixture();
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+
+        fixture.engine.insert(fixture.givenTransaction("10", now.minus(30L, SECONDS)), now.toInstant().toEpochMilli());
+        fixture.engine.insert(fixture.givenTransaction("2", now.minus(5L, SECONDS)), now.toInstant().toEpochMilli());
+
+        Statistics expectedStatistics = new Statistics(
+                new BigDecimal("2.00"),
+                new BigDecimal("2.00"),
+                new BigDecimal("2.00"),
+                new BigDecimal("2.00"),
+                1
+        );
+
+        assertEquals("Short window should fold only its own slots", expectedStatistics,
+                fixture.engine.getStatistics(SHORT_WINDOW));
+        assertEquals(2, fixture.engine.getStatistics(WINDOW).getCount());
+    }
+
+    @Test
+    public void shouldReportPercentilesOfLiveSlots() {
+        RingBufferEngine engine = new RingBufferEngine(Duration.ofMillis(50),
+                Collections.singleton(WINDOW), slotStoreFactory, Duration.ofSeconds(1), System::currentTimeMillis);
+        Fixture fixture = new Fixture();
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        for (int i = 1; i <= 100; i++) {
+            engine.insert(fixture.givenTransaction(String.valueOf(i), now.minus(i % 50, SECONDS)), now.toInstant().toEpochMilli());
+        }
+        engine.insert(fixture.givenTransaction("1000000", now.minus(65L, SECONDS)), now.toInstant().toEpochMilli());
+
+        Statistics resultStatistics = engine.getStatistics(WINDOW);
+
+        assertEquals(100, resultStatistics.getCount());
+        assertEquals(50, resultStatistics.getP50().doubleValue(), 0.5);
+        assertEquals(90, resultStatistics.getP90().doubleValue(), 0.9);
+        assertEquals(99, resultStatistics.getP99().doubleValue(), 0.99);
+    }
+
+    @Test
+    public void shouldCountSkewedTransactionOnceItsSlotIsReached() {
+        VirtualClock clock = new VirtualClock(START);
+        RingBufferEngine engine = new RingBufferEngine(Duration.ofMillis(50), Collections.singleton(WINDOW),
+                slotStoreFactory, null, Duration.ofMillis(500), Duration.ZERO, clock);
+        Fixture fixture = new Fixture();
+
+        engine.insert(fixture.givenTransaction("10", at(START + 300)), START);
+        engine.insert(fixture.givenTransaction("20", at(START + 600)), START);
+
+        assertEquals("Transaction ahead of the clock should not count yet", 0, engine.getStatistics(WINDOW).getCount());
+        clock.advanceTo(START + 300);
+        assertEquals(1, engine.getStatistics(WINDOW).getCount());
+        clock.advanceTo(START + 600);
+        assertEquals("Transaction beyond the skew should not be stored", 1, engine.getStatistics(WINDOW).getCount());
+    }
+
+    @Test
+    public void shouldRejectTransactionsBehindWatermark() {
+        VirtualClock clock = new VirtualClock(START);
+        RingBufferEngine engine = new RingBufferEngine(Duration.ofMillis(50), Arrays.asList(SHORT_WINDOW, WINDOW),
+                slotStoreFactory, null, Duration.ZERO, Duration.ofSeconds(1), clock);
+        Fixture fixture = new Fixture();
+
+        engine.insert(fixture.givenTransaction("10", at(START - 500)), START);
+        engine.insert(fixture.givenTransaction("20", at(START - 2000)), START);
+        assertEquals("Transaction behind the watermark should not be stored", 1, engine.getStatistics(WINDOW).getCount());
+
+        clock.advanceTo(START + 5000);
+        engine.insert(fixture.givenTransaction("30", at(START + 4800)), clock.getAsLong());
+        assertEquals("Final slots should still be read", 2, engine.getStatistics(WINDOW).getCount());
+
+        engine.restore(Collections.singletonList(fixture.givenTransaction("40", at(START + 1000))), clock.getAsLong());
+        assertEquals("Restored transactions should be accepted into final slots", 3, engine.getStatistics(WINDOW).getCount());
+        assertEquals(3, engine.getStatistics(SHORT_WINDOW).getCount());
+
+        engine.wipe();
+        assertEquals(EMPTY_STATISTICS, engine.getStatistics(WINDOW));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectWindowNotServed() {
+        new Fixture().engine.getStatistics(Duration.ofSeconds(30));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectResolutionNotDividingWindow() {
+        new RingBufferEngine(Duration.ofMillis(7), Collections.singleton(WINDOW), slotStoreFactory);
+    }
+
+    private static ZonedDateTime at(final long epochMilli) {
+        return Instant.ofEpochMilli(epochMilli).atZone(UTC);
+    }
+
+    private final class Fixture {
+        RingBufferEngine engine = new RingBufferEngine(Duration.ofMillis(50),
+                Arrays.asList(SHORT_WINDOW, WINDOW), slotStoreFactory);
+
+        Transaction givenTransaction(String amount, ZonedDateTime timestamp) {
+            return new Transaction(new BigDecimal(amount), timestamp);
+        }
+    }
+}
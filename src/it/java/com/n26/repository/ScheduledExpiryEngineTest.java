@@ -0,0 +1,114 @@
+package com.n26.repository;
+
+import com.n26.domain.Statistics;
+import com.n26.domain.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZoneOffset.UTC;
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+
+public class ScheduledExpiryEngineTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+
+    private final ScheduledExpiryEngine engine = new ScheduledExpiryEngine(WINDOW, new SimpleMeterRegistry());
+
+    @After
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    public void shouldKeepExactExtremesAfterOutOfOrderExpiry() throws InterruptedException {
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        engine.insert(new Transaction(new BigDecimal("5"), now.minus(10L, SECONDS)), now.toInstant().toEpochMilli());
+        engine.insert(new Transaction(new BigDecimal("9"), now.minus(59_700L, MILLIS)), now.toInstant().toEpochMilli());
+        engine.insert(new Transaction(new BigDecimal("9"), now), now.toInstant().toEpochMilli());
+        engine.insert(new Transaction(new BigDecimal("1"), now.minus(59_800L, MILLIS)), now.toInstant().toEpochMilli());
+
+        TimeUnit.MILLISECONDS.sleep(500L);
+        Statistics resultStatistics = engine.getStatistics(WINDOW);
+
+        assertEquals(2, resultStatistics.getCount());
+        assertEquals(new BigDecimal("9.00"), resultStatistics.getMax());
+        assertEquals(new BigDecimal("5.00"), resultStatistics.getMin());
+    }
+
+    @Test
+    public void shouldRemoveTransactionsExpiringTogetherAsOneUpdate() throws InterruptedException {
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        long nowMillis = now.toInstant().toEpochMilli();
+        for (int i = 0; i < 100; i++) {
+            engine.insert(new Transaction(new BigDecimal("2"), now.minus(59_900L, MILLIS)), nowMillis);
+        }
+        engine.insert(new Transaction(new BigDecimal("3"), now), nowMillis);
+        long version = engine.getVersion();
+
+        TimeUnit.MILLISECONDS.sleep(300L);
+        Statistics resultStatistics = engine.getStatistics(WINDOW);
+
+        assertEquals(1, resultStatistics.getCount());
+        assertEquals(new BigDecimal("3.00"), resultStatistics.getSum());
+        assertEquals(new BigDecimal("3.00"), resultStatistics.getMin());
+        assertEquals(version + 1, engine.getVersion());
+    }
+
+    @Test
+    public void shouldDropPendingRemovalsOnWipe() throws InterruptedException {
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        engine.insert(new Transaction(new BigDecimal("5"), now.minus(59_900L, MILLIS)), now.toInstant().toEpochMilli());
+        engine.wipe();
+        engine.insert(new Transaction(new BigDecimal("7"), now), now.toInstant().toEpochMilli());
+
+        TimeUnit.MILLISECONDS.sleep(300L);
+        Statistics resultStatistics = engine.getStatistics(WINDOW);
+
+        assertEquals(1, resultStatistics.getCount());
+        assertEquals(new BigDecimal("7.00"), resultStatistics.getSum());
+    }
+
+    @Test
+    public void shouldKeepExtremesOfLiveTransactionSharingABucketWithASkewedOne() throws InterruptedException {
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        long nowMillis = now.toInstant().toEpochMilli();
+        engine.insert(new Transaction(new BigDecimal("100"), now.minus(59_800L, MILLIS)), nowMillis);
+        engine.insert(new Transaction(new BigDecimal("50"), now.minus(58_500L, MILLIS)), nowMillis);
+        engine.insert(new Transaction(new BigDecimal("5"), now.minus(10L, SECONDS)), nowMillis);
+        // exactly one window after the live 50, i.e. the same bucket index
+        engine.insert(new Transaction(new BigDecimal("1"), now.plus(1_500L, MILLIS)), nowMillis);
+
+        // the max of 100 expires and the extremes are recalculated while 50 is still inside the window
+        TimeUnit.MILLISECONDS.sleep(700L);
+        Statistics resultStatistics = engine.getStatistics(WINDOW);
+
+        assertEquals(3, resultStatistics.getCount());
+        assertEquals(new BigDecimal("50.00"), resultStatistics.getMax());
+        assertEquals(new BigDecimal("1.00"), resultStatistics.getMin());
+    }
+
+    @Test
+    public void shouldRemoveSkewedTransactionOneWindowAfterItsArrival() throws InterruptedException {
+        Duration window = Duration.ofSeconds(1);
+        ScheduledExpiryEngine shortEngine = new ScheduledExpiryEngine(window, new SimpleMeterRegistry());
+        try {
+            ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+            shortEngine.insert(new Transaction(new BigDecimal("5"), now.plus(800L, MILLIS)), now.toInstant().toEpochMilli());
+
+            TimeUnit.MILLISECONDS.sleep(1_300L);
+
+            assertEquals(0, shortEngine.getStatistics(window).getCount());
+        } finally {
+            shortEngine.close();
+        }
+    }
+}
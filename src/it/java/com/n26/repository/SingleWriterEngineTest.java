@@ -0,0 +1,156 @@
+package com.n26.repository;
+
+import com.n26.config.StatisticsProperties.WaitStrategy;
+import com.n26.domain.Statistics;
+import com.n26.domain.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.time.ZoneOffset.UTC;
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class SingleWriterEngineTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final WaitStrategy waitStrategy;
+    private SingleWriterEngine engine;
+
+    public SingleWriterEngineTest(final WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> waitStrategies() {
+        return Arrays.stream(WaitStrategy.values()).map(strategy -> new Object[]{strategy}).collect(Collectors.toList());
+    }
+
+    @After
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    public void shouldPublishTransactionsOfConcurrentWriters() throws Exception {
+        engine = engine(1024);
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        long nowMillis = now.toInstant().toEpochMilli();
+
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int writer = 0; writer < 4; writer++) {
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 1; i <= 1000; i++) {
+                    engine.insert(new Transaction(BigDecimal.valueOf(i), now.minus(i, MILLIS)), nowMillis);
+                }
+            }));
+        }
+        CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).get(10L, TimeUnit.SECONDS);
+        Statistics resultStatistics = awaitCount(4000);
+
+        assertEquals(new BigDecimal("2002000.00"), resultStatistics.getSum());
+        assertEquals(new BigDecimal("500.50"), resultStatistics.getAvg());
+        assertEquals(new BigDecimal("1000.00"), resultStatistics.getMax());
+        assertEquals(new BigDecimal("1.00"), resultStatistics.getMin());
+        assertTrue(registry.get("statistics.visibility.latency").timer().count() > 0);
+    }
+
+    @Test
+    public void shouldWaitForFreeEventsWhenTheRingIsFull() throws InterruptedException {
+        engine = engine(4);
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        List<Transaction> transactions = IntStream.range(0, 100)
+                .mapToObj(i -> new Transaction(new BigDecimal("2"), now))
+                .collect(Collectors.toList());
+
+        engine.insertAll(transactions, now.toInstant().toEpochMilli());
+        Statistics resultStatistics = awaitCount(100);
+
+        assertEquals(new BigDecimal("200.00"), resultStatistics.getSum());
+    }
+
+    @Test
+    public void shouldRemoveTransactionsLeavingTheWindow() throws InterruptedException {
+        engine = engine(1024);
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        long nowMillis = now.toInstant().toEpochMilli();
+        engine.insert(new Transaction(new BigDecimal("9"), now.minus(59_900L, MILLIS)), nowMillis);
+        engine.insert(new Transaction(new BigDecimal("3"), now), nowMillis);
+
+        TimeUnit.MILLISECONDS.sleep(300L);
+        Statistics resultStatistics = engine.getStatistics(WINDOW);
+
+        assertEquals(1, resultStatistics.getCount());
+        assertEquals(new BigDecimal("3.00"), resultStatistics.getMax());
+    }
+
+    @Test
+    public void shouldKeepExtremesOfLiveTransactionSharingABucketWithASkewedOne() throws InterruptedException {
+        engine = engine(1024);
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        long nowMillis = now.toInstant().toEpochMilli();
+        engine.insert(new Transaction(new BigDecimal("100"), now.minus(59_800L, MILLIS)), nowMillis);
+        engine.insert(new Transaction(new BigDecimal("50"), now.minus(58_500L, MILLIS)), nowMillis);
+        engine.insert(new Transaction(new BigDecimal("5"), now.minus(10_000L, MILLIS)), nowMillis);
+        // one window ahead of the live 50, bucketed at its arrival instead
+        engine.insert(new Transaction(new BigDecimal("1"), now.plus(1_500L, MILLIS)), nowMillis);
+
+        TimeUnit.MILLISECONDS.sleep(700L);
+        Statistics resultStatistics = awaitCount(3);
+
+        assertEquals(new BigDecimal("50.00"), resultStatistics.getMax());
+        assertEquals(new BigDecimal("1.00"), resultStatistics.getMin());
+    }
+
+    @Test
+    public void shouldSeeEmptyWindowRightAfterWipe() throws InterruptedException {
+        engine = engine(1024);
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        long nowMillis = now.toInstant().toEpochMilli();
+        for (int i = 0; i < 100; i++) {
+            engine.insert(new Transaction(new BigDecimal("5"), now), nowMillis);
+        }
+
+        engine.wipe();
+        assertEquals(0, engine.getStatistics(WINDOW).getCount());
+
+        engine.insert(new Transaction(new BigDecimal("7"), now), nowMillis);
+        assertEquals(new BigDecimal("7.00"), awaitCount(1).getSum());
+    }
+
+    private SingleWriterEngine engine(final int ringSize) {
+        return new SingleWriterEngine(WINDOW, Duration.ofMillis(1), ringSize, waitStrategy, registry,
+                System::currentTimeMillis);
+    }
+
+    private Statistics awaitCount(final long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        Statistics statistics = engine.getStatistics(WINDOW);
+        while (statistics.getCount() != count && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1L);
+            statistics = engine.getStatistics(WINDOW);
+        }
+        assertEquals(count, statistics.getCount());
+        return statistics;
+    }
+}
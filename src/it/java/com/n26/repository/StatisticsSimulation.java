@@ -0,0 +1,140 @@
+package com.n26.repository;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.config.StatisticsProperties.EngineType;
+import com.n26.controller.validation.TransactionClassifier;
+import com.n26.domain.Statistics;
+import com.n26.domain.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Replays a {@link Trace} against a {@link StatisticsRepository} in virtual time. Transactions are validated
+ * like the endpoint does, at every query interval all windows are read and, when verifying, compared with
+ * {@link ReferenceStatistics}. Nothing waits, an hour of traffic is replayed as fast as the engine allows.
+ *
+ * Only the ring buffer can be simulated, the SCHEDULED and SINGLE_WRITER engines remove transactions on real timers.
+ */
+final class StatisticsSimulation {
+
+    private final StatisticsProperties properties;
+    private final long queryMillis;
+    private final boolean verify;
+
+    StatisticsSimulation(final StatisticsProperties properties, final Duration queryInterval, final boolean verify) {
+        if (properties.getEngine() != EngineType.RING_BUFFER) {
+            throw new IllegalArgumentException("The " + properties.getEngine() + " engine expires transactions in real time");
+        }
+        if (properties.isPercentiles() && verify) {
+            throw new IllegalArgumentException("Percentiles are estimates and can not be verified");
+        }
+        this.properties = properties;
+        this.queryMillis = queryInterval.toMillis();
+        this.verify = verify;
+    }
+
+    Report run(final Trace trace) {
+        long started = System.nanoTime();
+        VirtualClock clock = new VirtualClock(trace.start());
+        StatisticsRepository repository = new StatisticsRepository(properties, new SimpleMeterRegistry(), clock);
+        TransactionClassifier classifier = new TransactionClassifier(properties);
+        Set<Duration> windows = repository.getWindows();
+        ReferenceStatistics reference = new ReferenceStatistics(properties.getSlotResolution().toMillis(),
+                Collections.max(windows).toMillis(), properties.getFutureSkew().toMillis(),
+                properties.getAllowedLateness().toMillis());
+
+        Report report = new Report(windows);
+        long nextQuery = trace.start() + queryMillis;
+        for (Trace.Event event : trace) {
+            for (; nextQuery <= event.arrival; nextQuery += queryMillis) {
+                clock.advanceTo(nextQuery);
+                query(repository, reference, clock.getAsLong(), report);
+            }
+            clock.advanceTo(event.arrival);
+
+            report.transactions++;
+            Transaction transaction = new Transaction(event.amount, Instant.ofEpochMilli(event.timestamp).atZone(UTC));
+            if (classifier.classify(transaction, event.arrival) != null) continue;
+
+            long start = System.nanoTime();
+            repository.insert(transaction, event.arrival);
+            report.engineNanos += System.nanoTime() - start;
+            report.accepted++;
+            if (verify) reference.insert(event.timestamp, event.amount, event.arrival);
+        }
+        clock.advanceTo(nextQuery);
+        query(repository, reference, clock.getAsLong(), report);
+
+        report.virtualMillis = clock.getAsLong() - trace.start();
+        report.wallNanos = System.nanoTime() - started;
+        return report;
+    }
+
+    private void query(final StatisticsRepository repository,
+                       final ReferenceStatistics reference,
+                       final long now,
+                       final Report report) {
+        for (Duration window : report.windows) {
+            long start = System.nanoTime();
+            Statistics actual = repository.getStatistics(window);
+            report.engineNanos += System.nanoTime() - start;
+            report.queries++;
+            if (!verify) continue;
+
+            Statistics expected = reference.getStatistics(window.toMillis(), now);
+            if (!expected.equals(actual)) {
+                if (report.mismatches == 0) {
+                    report.firstMismatch = String.format("window %s at %s: expected %s, got %s",
+                            window, Instant.ofEpochMilli(now), expected, actual);
+                }
+                report.mismatches++;
+            }
+        }
+        if (verify) reference.expire(now);
+    }
+
+    static final class Report {
+        final Set<Duration> windows;
+        long transactions;
+        long accepted;
+        long queries;
+        long mismatches;
+        String firstMismatch;
+        long virtualMillis;
+        long wallNanos;
+        long engineNanos;
+
+        private Report(final Set<Duration> windows) {
+            this.windows = new LinkedHashSet<>(windows);
+        }
+
+        /**
+         * Virtual time replayed per unit of wall time
+         */
+        double speedup() {
+            return virtualMillis * 1e6 / wallNanos;
+        }
+
+        /**
+         * Inserts and reads per second spent inside the repository
+         */
+        double engineThroughput() {
+            return (accepted + queries) * 1e9 / Math.max(1, engineNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s of virtual time in %.1f s (%.0fx), %d transactions, %d accepted, %d reads, "
+                            + "%.0f engine ops/s, %d mismatches%s",
+                    Duration.ofMillis(virtualMillis), wallNanos / 1e9, speedup(), transactions, accepted, queries,
+                    engineThroughput(), mismatches, firstMismatch == null ? "" : ", first: " + firstMismatch);
+        }
+    }
+}
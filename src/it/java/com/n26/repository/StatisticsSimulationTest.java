@@ -0,0 +1,84 @@
+package com.n26.repository;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.config.StatisticsProperties.Arithmetic;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StatisticsSimulationTest {
+
+    private static final long START = 1_531_821_591_312L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldMatchReferenceModelInVirtualTime() {
+        Trace trace = Trace.generate(42L, START, Duration.ofMinutes(10), 20, Duration.ofSeconds(2));
+
+        StatisticsSimulation.Report report = new StatisticsSimulation(new StatisticsProperties(), Duration.ofSeconds(1), true)
+                .run(trace);
+
+        assertEquals(report.toString(), 0, report.mismatches);
+        assertEquals("Every window should be read every second", 4 * 600, report.queries);
+        assertTrue("Some transactions should be rejected", report.accepted < report.transactions);
+        assertTrue(report.toString(), report.speedup() > 100);
+    }
+
+    @Test
+    public void shouldMatchReferenceModelWithBigDecimalStripes() {
+        StatisticsProperties properties = new StatisticsProperties();
+        properties.setArithmetic(Arithmetic.BIG_DECIMAL);
+        properties.setStripes(4);
+        Trace trace = Trace.generate(7L, START, Duration.ofMinutes(2), 50, Duration.ofMillis(500));
+
+        StatisticsSimulation.Report report = new StatisticsSimulation(properties, Duration.ofMillis(250), true)
+                .run(trace);
+
+        assertEquals(report.toString(), 0, report.mismatches);
+    }
+
+    @Test
+    public void shouldMatchReferenceModelWithSkewAndLateness() {
+        StatisticsProperties properties = new StatisticsProperties();
+        properties.setFutureSkew(Duration.ofMillis(500));
+        properties.setAllowedLateness(Duration.ofSeconds(1));
+        Trace trace = Trace.generate(11L, START, Duration.ofMinutes(3), 50, Duration.ofSeconds(2));
+
+        StatisticsSimulation.Report report = new StatisticsSimulation(properties, Duration.ofMillis(100), true)
+                .run(trace);
+        StatisticsSimulation.Report strict = new StatisticsSimulation(new StatisticsProperties(), Duration.ofMillis(100), false)
+                .run(trace);
+
+        assertEquals(report.toString(), 0, report.mismatches);
+        assertTrue("Late transactions should be rejected", report.accepted < strict.accepted);
+    }
+
+    @Test
+    public void shouldReplayTraceFile() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, Arrays.asList(
+                "# arrival,timestamp,amount",
+                START + "," + START + ",10",
+                (START + 30_000) + "," + (START + 29_000) + ",2.5",
+                (START + 61_000) + "," + (START + 100) + ",1"));
+
+        StatisticsSimulation.Report report = new StatisticsSimulation(new StatisticsProperties(), Duration.ofSeconds(1), true)
+                .run(Trace.read(file));
+
+        assertEquals(report.toString(), 0, report.mismatches);
+        assertEquals(3, report.transactions);
+        assertEquals("The last one arrives after the window", 2, report.accepted);
+        assertEquals("The last read should follow the last arrival", 62_000, report.virtualMillis);
+    }
+}
@@ -0,0 +1,73 @@
+package com.n26.repository;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StripedSlotStoreTest {
+
+    @Test
+    public void shouldRoundStripesUpToPowerOfTwo() {
+        assertEquals(1, new StripedSlotStore(1, 1, FixedPointSlotStore::new).getStripeCount());
+        assertEquals(4, new StripedSlotStore(1, 3, FixedPointSlotStore::new).getStripeCount());
+        assertEquals(8, new StripedSlotStore(1, 8, FixedPointSlotStore::new).getStripeCount());
+    }
+
+    @Test
+    public void shouldMergeWritesOfAllThreads() throws InterruptedException {
+        StripedSlotStore store = new StripedSlotStore(10, 4, FixedPointSlotStore::new);
+        int threads = 8;
+        int writesPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            BigDecimal amount = BigDecimal.valueOf(t + 1);
+            executor.execute(() -> {
+                for (int i = 0; i < writesPerThread; i++) {
+                    store.add(2, 42L, amount);
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10L, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        FixedPointAccumulator total = new FixedPointAccumulator();
+        store.fold(42L, 42L, total);
+
+        assertEquals(threads * writesPerThread, total.getCount());
+        assertEquals(0, BigDecimal.valueOf(36L * writesPerThread).compareTo(total.getSum()));
+        assertEquals(0, BigDecimal.ONE.compareTo(total.getMin()));
+        assertEquals(0, BigDecimal.valueOf(threads).compareTo(total.getMax()));
+    }
+
+    @Test
+    public void shouldGiveEveryThreadItsOwnStripeUpToTheStripeCount() throws InterruptedException {
+        StripedSlotStore store = new StripedSlotStore(10, 4, FixedPointSlotStore::new);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < store.getStripeCount(); t++) {
+            BigDecimal amount = BigDecimal.valueOf(t + 1);
+            threads.add(new Thread(() -> store.add(2, 42L, amount)));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+            thread.join();
+        }
+
+        for (int stripe = 0; stripe < store.getStripeCount(); stripe++) {
+            FixedPointAccumulator total = new FixedPointAccumulator();
+            store.getStripe(stripe).fold(42L, 42L, total);
+            assertEquals("Writes in stripe " + stripe, 1, total.getCount());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.n26.repository;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+
+    @Test
+    public void shouldHandOutItemsOfPassedTicksTogether() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 1_000);
+        wheel.schedule(1_005, "a");
+        wheel.schedule(1_010, "b");
+        wheel.schedule(1_011, "c");
+
+        assertEquals(Collections.emptyList(), advance(wheel, 1_009));
+        assertEquals(Arrays.asList("a", "b"), advance(wheel, 1_010));
+        assertEquals(Collections.emptyList(), advance(wheel, 1_019));
+        assertEquals(Collections.singletonList("c"), advance(wheel, 1_020));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void shouldHandOutEveryDeadlineOnTimeAcrossLevels() {
+        Random random = new Random(42L);
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 4, 0);
+        int items = 10_000;
+        for (int i = 0; i < items; i++) {
+            long deadline = 1 + random.nextInt(100_000);
+            wheel.schedule(deadline, deadline);
+        }
+
+        int handedOut = 0;
+        long now = 0;
+        while (now < 100_000) {
+            long previous = now;
+            now += 1 + random.nextInt(300);
+            for (long deadline : advance(wheel, now)) {
+                assertTrue("Deadline " + deadline + " handed out at " + now, deadline > previous && deadline <= now);
+                handedOut++;
+            }
+            // scheduled behind the turns already cascaded
+            long deadline = now + 1 + random.nextInt(5_000);
+            wheel.schedule(deadline, deadline);
+            items++;
+        }
+        for (long deadline : advance(wheel, 200_000)) {
+            assertTrue(deadline > now);
+            handedOut++;
+        }
+
+        assertEquals(items, handedOut);
+    }
+
+    @Test
+    public void shouldHandOutPassedDeadlineWithNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 8, 1_000);
+        advance(wheel, 1_500);
+        wheel.schedule(1_200, "late");
+
+        assertEquals(Collections.singletonList("late"), advance(wheel, 1_501));
+    }
+
+    @Test
+    public void shouldNotHandOutCancelledItem() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 8, 0);
+        TimingWheel.Entry<String> cancelled = wheel.schedule(100, "cancelled");
+        wheel.schedule(100, "kept");
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(1, wheel.size());
+        assertEquals(Collections.singletonList("kept"), advance(wheel, 100));
+    }
+
+    @Test
+    public void shouldDropAllItemsOnClear() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 4, 0);
+        wheel.schedule(2, "near");
+        wheel.schedule(1_000, "far");
+
+        wheel.clear();
+
+        assertEquals(0, wheel.size());
+        assertEquals(Collections.emptyList(), advance(wheel, 2_000));
+    }
+
+    private static <T> List<T> advance(final TimingWheel<T> wheel, final long now) {
+        List<T> due = new ArrayList<>();
+        wheel.advance(now, due::add);
+        return due;
+    }
+}
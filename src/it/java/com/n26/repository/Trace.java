@@ -0,0 +1,152 @@
+package com.n26.repository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Timestamped transactions in order of arrival, generated or read from a file. Iterated lazily,
+ * so an hour of traffic does not have to fit into memory.
+ */
+abstract class Trace implements Iterable<Trace.Event> {
+
+    /**
+     * Time of the first arrival, the simulation starts there
+     */
+    abstract long start();
+
+    /**
+     * Poisson arrivals at the given rate, each transaction timestamped up to {@code maxLag} before its arrival.
+     * One in a hundred arrives later than the default window or from the future, like the traffic rejected in production.
+     */
+    static Trace generate(final long seed, final long start, final Duration duration,
+                          final double perSecond, final Duration maxLag) {
+        long end = start + duration.toMillis();
+        long lag = maxLag.toMillis();
+        return new Trace() {
+            @Override
+            long start() {
+                return start;
+            }
+
+            @Override
+            public Iterator<Event> iterator() {
+                Random random = new Random(seed);
+                return new Iterator<Event>() {
+                    private double arrival = start;
+
+                    @Override
+                    public boolean hasNext() {
+                        return arrival < end;
+                    }
+
+                    @Override
+                    public Event next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        long at = (long) arrival;
+                        arrival += -Math.log(1 - random.nextDouble()) * 1000 / perSecond;
+
+                        long timestamp = at - (long) (random.nextDouble() * lag);
+                        int outlier = random.nextInt(200);
+                        if (outlier == 0) timestamp = at - 60_000 - random.nextInt(60_000);
+                        if (outlier == 1) timestamp = at + 1 + random.nextInt(1_000);
+                        return new Event(at, timestamp, BigDecimal.valueOf(random.nextInt(100_000_000), random.nextInt(7)));
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Lines of {@code arrival,timestamp,amount} with times in epoch millis, lines starting with {@code #} are skipped
+     */
+    static Trace read(final Path path) {
+        long start;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            Event first = null;
+            for (String line = reader.readLine(); first == null && line != null; line = reader.readLine()) {
+                first = parse(line);
+            }
+            if (first == null) throw new IllegalArgumentException("Trace " + path + " is empty");
+            start = first.arrival;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trace " + path + " can not be read", e);
+        }
+        return new Trace() {
+            @Override
+            long start() {
+                return start;
+            }
+
+            @Override
+            public Iterator<Event> iterator() {
+                return events(path);
+            }
+        };
+    }
+
+    // the file is closed once the last event was read
+    private static Iterator<Event> events(final Path path) {
+        BufferedReader reader;
+        try {
+            reader = Files.newBufferedReader(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Trace " + path + " can not be read", e);
+        }
+        return new Iterator<Event>() {
+            private Event next = read();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Event next() {
+                if (next == null) throw new NoSuchElementException();
+                Event event = next;
+                next = read();
+                return event;
+            }
+
+            private Event read() {
+                try {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        Event event = parse(line);
+                        if (event != null) return event;
+                    }
+                    reader.close();
+                    return null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Trace " + path + " can not be read", e);
+                }
+            }
+        };
+    }
+
+    private static Event parse(final String line) {
+        if (line.isEmpty() || line.startsWith("#")) return null;
+        String[] fields = line.split(",");
+        if (fields.length != 3) throw new IllegalArgumentException("Trace line must have 3 fields: " + line);
+        return new Event(Long.parseLong(fields[0].trim()), Long.parseLong(fields[1].trim()), new BigDecimal(fields[2].trim()));
+    }
+
+    static final class Event {
+        final long arrival;
+        final long timestamp;
+        final BigDecimal amount;
+
+        Event(final long arrival, final long timestamp, final BigDecimal amount) {
+            this.arrival = arrival;
+            this.timestamp = timestamp;
+            this.amount = amount;
+        }
+    }
+}
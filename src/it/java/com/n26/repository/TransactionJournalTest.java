@@ -0,0 +1,155 @@
+package com.n26.repository;
+
+import com.n26.domain.Transaction;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZoneOffset.UTC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionJournalTest {
+
+    private static final Duration RETENTION = Duration.ofSeconds(60);
+    private static final Duration FUTURE_SKEW = Duration.ofSeconds(2);
+    private static final Duration COMMIT_INTERVAL = Duration.ofMillis(10);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReplayExactAmountsOfWindow() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        long now = System.currentTimeMillis();
+        List<Transaction> written = Arrays.asList(
+                transaction("12.3343", now - 1_000),
+                transaction("-0.000000001", now - 2_000),
+                transaction("99999999999999999999999999.99", now - 3_000));
+
+        TransactionJournal journal = journal(directory, 1024);
+        written.forEach(transaction -> journal.append(transaction, now));
+        journal.append(transaction("1", now - 61_000), now);
+        journal.close();
+
+        List<Transaction> replayed = replay(directory, now);
+
+        assertEquals("Only transactions inside the window should be replayed", written, replayed);
+    }
+
+    @Test
+    public void shouldReplayAcrossFullSegments() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        long now = System.currentTimeMillis();
+        TransactionJournal journal = journal(directory, 2);
+        List<Transaction> written = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            written.add(transaction(String.valueOf(i), now - i));
+        }
+
+        journal.appendAll(written, now);
+        journal.close();
+
+        assertEquals(written, replay(directory, now));
+    }
+
+    @Test
+    public void shouldReplayAppendsOfConcurrentWriters() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        long now = System.currentTimeMillis();
+        TransactionJournal journal = journal(directory, 256);
+
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int writer = 0; writer < 4; writer++) {
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 1; i <= 1000; i++) {
+                    journal.append(transaction(String.valueOf(i), now - i), now);
+                }
+            }));
+        }
+        CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).get(10L, TimeUnit.SECONDS);
+        journal.close();
+        List<Transaction> replayed = replay(directory, now);
+
+        assertEquals(4000, replayed.size());
+        assertEquals(new BigDecimal("2002000"),
+                replayed.stream().map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    @Test
+    public void shouldKeepSegmentWhileItsSkewedTransactionIsInTheWindow() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        long start = System.currentTimeMillis() - 130_000L;
+        TransactionJournal journal = journal(directory, 1024);
+        journal.append(transaction("1", start), start);
+        // ahead of the clock, it stays in the window longer than the segment is written
+        Transaction skewed = transaction("2", start + 60_500L);
+        journal.append(skewed, start + 59_000L);
+        journal.append(transaction("3", start + 60_000L), start + 60_000L);
+        long now = start + 120_200L;
+        journal.append(transaction("4", now), now);
+        journal.close();
+
+        assertEquals(Arrays.asList(skewed, transaction("4", now)), replay(directory, now));
+    }
+
+    @Test
+    public void shouldForgetEverythingOnClear() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        long now = System.currentTimeMillis();
+        TransactionJournal journal = journal(directory, 1024);
+        journal.append(transaction("10", now), now);
+
+        journal.clear();
+        journal.append(transaction("20", now), now);
+        journal.close();
+
+        assertEquals(Arrays.asList(transaction("20", now)), replay(directory, now));
+    }
+
+    @Test
+    public void shouldNotJournalAmountsBeyond128Bits() throws IOException {
+        TransactionJournal journal = journal(folder.newFolder().toPath(), 16);
+        long now = System.currentTimeMillis();
+
+        assertFalse(journal.append(transaction("10000000000000000000000000000000000000001", now), now));
+        assertTrue(journal.append(transaction("1", now), now));
+        journal.close();
+    }
+
+    @Test
+    public void shouldRejectZeroedRecord() {
+        assertNotEquals(0, TransactionJournal.check(0, 0, 0, 0));
+    }
+
+    private static TransactionJournal journal(final Path directory, final int segmentRecords) {
+        return new TransactionJournal(directory, segmentRecords, RETENTION, FUTURE_SKEW, COMMIT_INTERVAL);
+    }
+
+    private static List<Transaction> replay(final Path directory, final long now) {
+        List<Transaction> replayed = new ArrayList<>();
+        TransactionJournal journal = journal(directory, 1024);
+        journal.replay(now, replayed::addAll);
+        journal.close();
+        return replayed;
+    }
+
+    private static Transaction transaction(final String amount, final long timestamp) {
+        ZonedDateTime time = Instant.ofEpochMilli(timestamp).atZone(UTC);
+        return new Transaction(new BigDecimal(amount), time);
+    }
+}
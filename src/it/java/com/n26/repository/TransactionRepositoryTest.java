@@ -1,14 +1,15 @@
 package com.n26.repository;
 
+import com.n26.config.StatisticsProperties;
 import com.n26.domain.Statistics;
 import com.n26.domain.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.After;
 import org.junit.Test;
 
 import java.math.BigDecimal;
-import java.time.OffsetDateTime;
+import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.util.concurrent.TimeUnit;
 
 import static com.n26.repository.StatisticsRepository.EMPTY_STATISTICS;
 import static java.time.ZoneOffset.UTC;
@@ -26,7 +27,7 @@ public class TransactionRepositoryTest {
     @Test
     public void shouldFillAndClearCacheOnRequest() {
         Fixture fixture = new Fixture();
-        Transaction testTransaction = fixture.givenTransaction(OffsetDateTime.now(UTC).toZonedDateTime());
+        Transaction testTransaction = fixture.givenTransaction(fixture.now());
 
         fixture.statisticsRepository.insert(testTransaction);
 
@@ -44,9 +45,9 @@ public class TransactionRepositoryTest {
     }
 
     @Test
-    public void shouldAutoRemoveExpiredTransaction() throws InterruptedException {
+    public void shouldAutoRemoveExpiredTransaction() {
         Fixture fixture = new Fixture();
-        ZonedDateTime stillValidTransaction = OffsetDateTime.now(UTC).toZonedDateTime().minus(59L, SECONDS);
+        ZonedDateTime stillValidTransaction = fixture.now().minus(59L, SECONDS);
         Transaction testTransaction = fixture.givenTransaction(stillValidTransaction);
 
         fixture.statisticsRepository.insert(testTransaction);
@@ -57,22 +58,20 @@ public class TransactionRepositoryTest {
 
         assertEquals("Statistics should contain correct data", expectedStatistics, resultStatistics);
 
-        TimeUnit.SECONDS.sleep(1L);
+        fixture.clock.advanceBy(1_000L);
         resultStatistics = fixture.statisticsRepository.getStatistics();
 
         assertEquals("Statistics should be empty after transaction expiration", EMPTY_STATISTICS, resultStatistics);
     }
 
     @Test
-    public void shouldImmediatelyRemoveExpiredTransaction() throws InterruptedException {
+    public void shouldImmediatelyRemoveExpiredTransaction() {
         Fixture fixture = new Fixture();
-        ZonedDateTime stillValidTransaction = OffsetDateTime.now(UTC).toZonedDateTime().minus(61L, SECONDS);
+        ZonedDateTime stillValidTransaction = fixture.now().minus(61L, SECONDS);
         Transaction testTransaction = fixture.givenTransaction(stillValidTransaction);
 
         fixture.statisticsRepository.insert(testTransaction);
 
-        // still need to sleep a bit to overcome racing condition
-        TimeUnit.MILLISECONDS.sleep(100L);
         Statistics resultStatistics = fixture.statisticsRepository.getStatistics();
 
         assertEquals("Statistics should be empty after transaction expiration", EMPTY_STATISTICS, resultStatistics);
@@ -106,10 +105,15 @@ public class TransactionRepositoryTest {
     }
 
     private static final class Fixture {
+        VirtualClock clock = new VirtualClock(System.currentTimeMillis());
         StatisticsRepository statisticsRepository;
 
         Fixture() {
-            statisticsRepository = new StatisticsRepository();
+            statisticsRepository = new StatisticsRepository(new StatisticsProperties(), new SimpleMeterRegistry(), clock);
+        }
+
+        ZonedDateTime now() {
+            return Instant.ofEpochMilli(clock.getAsLong()).atZone(UTC);
         }
 
         Transaction givenTransaction(BigDecimal amount, ZonedDateTime zonedDateTime) {
@@ -121,7 +125,7 @@ public class TransactionRepositoryTest {
         }
 
         Transaction givenTransaction(BigDecimal amount) {
-            return givenTransaction(amount, OffsetDateTime.now(UTC).toZonedDateTime());
+            return givenTransaction(amount, now());
         }
     }
 }
\ No newline at end of file
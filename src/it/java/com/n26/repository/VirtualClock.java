@@ -0,0 +1,31 @@
+package com.n26.repository;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Time source which only moves when told to, so expiry can be observed without sleeping
+ */
+public final class VirtualClock implements LongSupplier {
+
+    private long now;
+
+    public VirtualClock(final long start) {
+        this.now = start;
+    }
+
+    @Override
+    public long getAsLong() {
+        return now;
+    }
+
+    public void advanceTo(final long millis) {
+        if (millis < now) {
+            throw new IllegalArgumentException("Virtual time must not go back from " + now + " to " + millis);
+        }
+        now = millis;
+    }
+
+    public void advanceBy(final long millis) {
+        advanceTo(now + millis);
+    }
+}
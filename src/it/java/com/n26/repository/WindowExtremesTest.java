@@ -0,0 +1,60 @@
+package com.n26.repository;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class WindowExtremesTest {
+
+    private static final long NOW = 1_531_821_591_312L;
+    private static final long WINDOW = 60_000L;
+
+    @Test
+    public void shouldTrackExtremesInsideWindow() {
+        WindowExtremes extremes = new WindowExtremes(WINDOW);
+        extremes.add(NOW - 59_999L, new BigDecimal("100"));
+        extremes.add(NOW - 30_000L, new BigDecimal("1"));
+        extremes.add(NOW, new BigDecimal("50"));
+
+        extremes.query(NOW);
+
+        assertEquals(new BigDecimal("1"), extremes.getMin());
+        assertEquals(new BigDecimal("100"), extremes.getMax());
+    }
+
+    @Test
+    public void shouldForgetExpiredBucketsInAnyOrder() {
+        WindowExtremes extremes = new WindowExtremes(WINDOW);
+        extremes.add(NOW - 20_000L, new BigDecimal("7"));
+        extremes.add(NOW - 50_000L, new BigDecimal("7"));
+        extremes.add(NOW - 40_000L, new BigDecimal("1"));
+        extremes.add(NOW - 10_000L, new BigDecimal("3"));
+
+        extremes.query(NOW + 20_000L);
+        assertEquals(new BigDecimal("3"), extremes.getMin());
+        assertEquals(new BigDecimal("7"), extremes.getMax());
+
+        extremes.query(NOW + 40_000L);
+        assertEquals(new BigDecimal("3"), extremes.getMin());
+        assertEquals(new BigDecimal("3"), extremes.getMax());
+
+        extremes.query(NOW + 50_000L);
+        assertNull(extremes.getMin());
+        assertNull(extremes.getMax());
+    }
+
+    @Test
+    public void shouldOverwriteReusedBuckets() {
+        WindowExtremes extremes = new WindowExtremes(WINDOW);
+        extremes.add(NOW - 59_500L, new BigDecimal("1000"));
+        extremes.add(NOW + 500L, new BigDecimal("2"));
+
+        extremes.query(NOW + 500L);
+
+        assertEquals(new BigDecimal("2"), extremes.getMin());
+        assertEquals(new BigDecimal("2"), extremes.getMax());
+    }
+}
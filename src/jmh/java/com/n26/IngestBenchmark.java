@@ -0,0 +1,316 @@
+package com.n26;
+
+import com.n26.controller.binary.BinaryTransactionListener;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.HOST;
+import static io.netty.handler.codec.http.HttpMethod.POST;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Ingestion throughput over loopback of the binary listener against {@code POST /transactions}
+ * and {@code POST /transactions/batch} with newline delimited JSON. Not a JMH benchmark, the application
+ * is started in-process and every client thread keeps one connection busy in a closed loop.
+ * Batches carry the same number of transactions on both batch paths, the binary client keeps
+ * up to {@code depth} batches in flight before it waits for an ack.
+ *
+ * mvn -P benchmark test-compile exec:exec -Djmh.main=com.n26.IngestBenchmark
+ * -Djmh.args="[seconds=10] [threads=1] [batch=1000] [depth=4]"
+ *
+ * The first third of every run warms up and is not counted.
+ */
+public final class IngestBenchmark {
+
+    private static final int RECORD_SIZE = 16;
+    private static final int ACK_SIZE = 12;
+
+    private final int seconds;
+    private final int threads;
+    private final int batch;
+    private final int depth;
+
+    private IngestBenchmark(final int seconds, final int threads, final int batch, final int depth) {
+        this.seconds = seconds;
+        this.threads = threads;
+        this.batch = batch;
+        this.depth = depth;
+    }
+
+    public static void main(String... args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int batch = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        new IngestBenchmark(seconds, threads, batch, depth).run();
+    }
+
+    private void run() throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=0", "logging.level.root=WARN")
+                // arguments, as defaults would lose against application.properties
+                .run("--statistics.binary-port=0");
+        EventLoopGroup group = new NioEventLoopGroup(threads);
+        try {
+            int httpPort = ((WebServerApplicationContext) context).getWebServer().getPort();
+            int binaryPort = context.getBean(BinaryTransactionListener.class).getPort();
+
+            System.out.printf("%d threads, %d transactions per batch, %d binary batches in flight%n", threads, batch, depth);
+            measure("POST /transactions", () -> new HttpClient(group, httpPort, 1));
+            measure("POST /transactions/batch", () -> new HttpClient(group, httpPort, batch));
+            measure("binary listener", () -> new BinaryClient(binaryPort));
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+            context.close();
+        }
+    }
+
+    private void measure(final String name, final ClientFactory factory) throws Exception {
+        LongAdder transactions = new LongAdder();
+        Measurement measurement = new Measurement();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Client client = factory.create();
+            Thread worker = new Thread(() -> {
+                try {
+                    while (measurement.running) {
+                        int sent = client.send();
+                        if (measurement.counting) transactions.add(sent);
+                    }
+                    client.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, "ingest-client-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+
+        TimeUnit.SECONDS.sleep(Math.max(1, seconds / 3));
+        measurement.counting = true;
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(seconds);
+        measurement.counting = false;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        measurement.running = false;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        double perSecond = transactions.sum() / elapsed;
+        System.out.printf("  %-26s %12.0f transactions/s  %8.2f us/transaction%n", name, perSecond, 1e6 / perSecond);
+    }
+
+    private static final class Measurement {
+        private volatile boolean running = true;
+        private volatile boolean counting;
+    }
+
+    private interface ClientFactory {
+        Client create() throws IOException;
+    }
+
+    private interface Client {
+        /**
+         * @return number of transactions acknowledged by the server
+         */
+        int send() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    /**
+     * Single transactions as JSON objects, batches as newline delimited JSON, over a keep-alive connection
+     * which is replaced when the server closes it, Tomcat does so after 100 requests by default
+     */
+    private static final class HttpClient extends SimpleChannelInboundHandler<FullHttpResponse> implements Client {
+
+        private final int batch;
+        private final String uri;
+        private final Bootstrap bootstrap;
+        private final BlockingQueue<Integer> statuses = new ArrayBlockingQueue<>(1);
+        // written by the client thread, read on the event loop
+        private volatile Channel channel;
+        private volatile boolean awaiting;
+        private byte[] body;
+        private long bodyCreated;
+
+        private HttpClient(final EventLoopGroup group, final int port, final int batch) throws IOException {
+            this.batch = batch;
+            this.uri = batch > 1 ? "/transactions/batch" : "/transactions";
+            HttpClient handler = this;
+            this.bootstrap = new Bootstrap()
+                    .group(group)
+                    .remoteAddress("127.0.0.1", port)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(final SocketChannel channel) {
+                            channel.pipeline()
+                                    .addLast(new HttpClientCodec())
+                                    .addLast(new HttpObjectAggregator(1 << 20))
+                                    .addLast(handler);
+                        }
+                    });
+        }
+
+        @Override
+        public boolean isSharable() {
+            return true;
+        }
+
+        @Override
+        public int send() throws IOException {
+            if (channel == null || !channel.isActive()) {
+                channel = bootstrap.connect().syncUninterruptibly().channel();
+            }
+            byte[] content = body();
+            FullHttpRequest request = new DefaultFullHttpRequest(HTTP_1_1, POST, uri, Unpooled.wrappedBuffer(content));
+            request.headers().set(HOST, "localhost");
+            request.headers().set(CONTENT_TYPE, batch > 1 ? "application/x-ndjson" : "application/json");
+            request.headers().set(CONTENT_LENGTH, content.length);
+            awaiting = true;
+            channel.writeAndFlush(request);
+
+            int status;
+            try {
+                status = statuses.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            if (status < 0) throw new IOException("Connection closed by the server");
+            if (status >= 300) throw new IOException("Unexpected status " + status);
+            return batch;
+        }
+
+        @Override
+        public void close() {
+            if (channel != null) channel.close().syncUninterruptibly();
+        }
+
+        @Override
+        protected void channelRead0(final ChannelHandlerContext ctx, final FullHttpResponse response) {
+            // closed before the status is handed over, so the next request sees an inactive channel
+            if (!HttpUtil.isKeepAlive(response)) ctx.close();
+            awaiting = false;
+            statuses.add(response.status().code());
+        }
+
+        @Override
+        public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+            ctx.close();
+        }
+
+        // fails a waiting request instead of blocking the client forever
+        @Override
+        public void channelInactive(final ChannelHandlerContext ctx) {
+            if (awaiting && ctx.channel() == channel) statuses.offer(-1);
+        }
+
+        // rebuilt once a second, so client side formatting does not dominate
+        private byte[] body() {
+            long now = System.currentTimeMillis();
+            if (body != null && now - bodyCreated < 1000) return body;
+
+            StringBuilder builder = new StringBuilder();
+            String line = "{\"amount\":\"12.3343\",\"timestamp\":\"" + Instant.ofEpochMilli(now) + "\"}";
+            for (int i = 0; i < batch; i++) {
+                builder.append(line).append('\n');
+            }
+            body = builder.toString().getBytes(UTF_8);
+            bodyCreated = now;
+            return body;
+        }
+    }
+
+    /**
+     * Pipelines up to {@code depth} batches, then waits for the oldest ack before sending the next one
+     */
+    private final class BinaryClient implements Client {
+
+        private final java.nio.channels.SocketChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocateDirect(4 + batch * RECORD_SIZE);
+        private final ByteBuffer ack = ByteBuffer.allocateDirect(ACK_SIZE);
+        private int inFlight;
+
+        private BinaryClient(final int port) throws IOException {
+            this.channel = java.nio.channels.SocketChannel.open(new InetSocketAddress("localhost", port));
+            channel.socket().setTcpNoDelay(true);
+        }
+
+        @Override
+        public int send() throws IOException {
+            long now = System.currentTimeMillis();
+            out.clear();
+            out.putInt(batch);
+            for (int i = 0; i < batch; i++) {
+                out.putLong(now).putLong(12_334_300L);
+            }
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            if (++inFlight < depth) return 0;
+
+            inFlight--;
+            return readAck();
+        }
+
+        @Override
+        public void close() throws IOException {
+            while (inFlight > 0) {
+                inFlight--;
+                readAck();
+            }
+            channel.close();
+        }
+
+        private int readAck() throws IOException {
+            ack.clear();
+            while (ack.hasRemaining()) {
+                if (channel.read(ack) < 0) throw new IOException("Connection closed by the listener");
+            }
+            int accepted = ack.getInt(0);
+            if (accepted != batch) throw new IOException("Only " + accepted + " of " + batch + " accepted");
+            return accepted;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.n26;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.HOST;
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpMethod.POST;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Drives the embedded server at a fixed arrival rate, independent of how fast it answers (open loop).
+ * Every request has an intended start time on a fixed schedule. When all connections are busy it waits
+ * for one, but its latency is still measured from the intended start, so a stalled server is charged for
+ * the requests it kept from being sent (coordinated omission). The service time, measured from the actual
+ * send, is reported alongside.
+ *
+ * mvn -P benchmark test-compile exec:exec -Djmh.main=com.n26.LoadGenerator
+ * -Djmh.args="[rate=1000] [seconds=30] [post-ratio=0.5] [connections=64] [stack=servlet]"
+ *
+ * The first third of the run warms up both sides, its latencies are dropped. Connections closed by the server,
+ * Tomcat does so after 100 requests by default, are replaced. Requests refused with 503 are counted as shed
+ * and left out of the latencies.
+ */
+public final class LoadGenerator {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final long TICK_MICROS = 500;
+
+    private final double rate;
+    private final int seconds;
+    private final double postRatio;
+    private final int connections;
+    private final String stack;
+
+    private final Endpoint post = new Endpoint("POST /transactions");
+    private final Endpoint get = new Endpoint("GET /statistics");
+    private final Random random = new Random(42L);
+
+    // only touched on the single event loop of the client
+    private final Deque<Connection> idle = new ArrayDeque<>();
+    private final Deque<Request> backlog = new ArrayDeque<>();
+    private long scheduled;
+    private long nextIntended;
+    private Bootstrap bootstrap;
+    private boolean stopping;
+
+    private LoadGenerator(final double rate, final int seconds, final double postRatio,
+                          final int connections, final String stack) {
+        this.rate = rate;
+        this.seconds = seconds;
+        this.postRatio = postRatio;
+        this.connections = connections;
+        this.stack = stack;
+    }
+
+    public static void main(String... args) throws Exception {
+        double rate = args.length > 0 ? Double.parseDouble(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        double postRatio = args.length > 2 ? Double.parseDouble(args[2]) : 0.5;
+        int connections = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        String stack = args.length > 4 ? args[4] : "servlet";
+
+        new LoadGenerator(rate, seconds, postRatio, connections, stack).run();
+    }
+
+    private void run() throws Exception {
+        boolean reactive = Application.REACTIVE_PROFILE.equals(stack);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .web(reactive ? WebApplicationType.REACTIVE : WebApplicationType.SERVLET)
+                .profiles(reactive ? new String[]{Application.REACTIVE_PROFILE} : new String[0])
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        // a single client thread owns the schedule, the connection pool and the backlog
+        EventLoopGroup group = new NioEventLoopGroup(1);
+        EventLoop loop = group.next();
+        try {
+            connect(group, port);
+            long period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            loop.submit(() -> nextIntended = System.nanoTime()).sync();
+            ScheduledFuture<?> ticker = loop.scheduleAtFixedRate(() -> issue(period), 0, TICK_MICROS, TimeUnit.MICROSECONDS);
+
+            TimeUnit.SECONDS.sleep(Math.max(1, seconds / 3));
+            loop.submit(this::reset).sync();
+
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(seconds);
+            Report report = loop.submit(() -> new Report(System.nanoTime() - start)).sync().getNow();
+            ticker.cancel(false);
+
+            System.out.printf("%s, %.0f req/s scheduled, %d connections, %.0f%% POST%n",
+                    stack, rate, connections, postRatio * 100);
+            report.print();
+
+            // in-flight responses are awaited, closing mid-response only produces server side noise
+            loop.submit(backlog::clear).sync();
+            for (int i = 0; i < 50 && loop.submit(idle::size).sync().getNow() < connections; i++) {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            loop.submit(() -> stopping = true).sync();
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+            context.close();
+        }
+    }
+
+    private void connect(final EventLoopGroup group, final int port) throws InterruptedException {
+        bootstrap = new Bootstrap()
+                .group(group)
+                .remoteAddress("127.0.0.1", port)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(final SocketChannel channel) {
+                        channel.pipeline()
+                                .addLast(new HttpClientCodec())
+                                .addLast(new HttpObjectAggregator(64 * 1024))
+                                .addLast(new Connection());
+                    }
+                });
+        for (int i = 0; i < connections; i++) {
+            bootstrap.connect().sync();
+        }
+    }
+
+    /**
+     * Hands out every request whose intended start has passed, the schedule does not depend on the tick
+     */
+    private void issue(final long period) {
+        long now = System.nanoTime();
+        for (; nextIntended <= now; nextIntended += period) {
+            Request request = new Request(random.nextDouble() < postRatio ? post : get, nextIntended);
+            scheduled++;
+            Connection connection = idle.poll();
+            if (connection == null) {
+                backlog.add(request);
+            } else {
+                connection.send(request);
+            }
+        }
+    }
+
+    private void reset() {
+        post.reset();
+        get.reset();
+        scheduled = 0;
+    }
+
+    private static FullHttpRequest transaction() {
+        byte[] body = ("{\"amount\":\"12.3343\",\"timestamp\":\"" + Instant.now() + "\"}").getBytes(UTF_8);
+        FullHttpRequest request = new DefaultFullHttpRequest(HTTP_1_1, POST, "/transactions", Unpooled.wrappedBuffer(body));
+        request.headers().set(CONTENT_TYPE, "application/json");
+        request.headers().set(CONTENT_LENGTH, body.length);
+        return request;
+    }
+
+    private static final class Endpoint {
+
+        private final String name;
+        private final Recorder latency = new Recorder(HIGHEST_LATENCY_MICROS, 3);
+        private final Recorder serviceTime = new Recorder(HIGHEST_LATENCY_MICROS, 3);
+        private long errors;
+        private long shed;
+
+        private Endpoint(final String name) {
+            this.name = name;
+        }
+
+        private FullHttpRequest request() {
+            FullHttpRequest request = this.name.startsWith("POST")
+                    ? transaction()
+                    : new DefaultFullHttpRequest(HTTP_1_1, GET, "/statistics");
+            request.headers().set(HOST, "localhost");
+            return request;
+        }
+
+        private void record(final Request request, final int status) {
+            // refused by admission control, answered without doing the work
+            if (status == 503) {
+                shed++;
+                return;
+            }
+            long now = System.nanoTime();
+            latency.recordValue(Math.min((now - request.intended) / 1000, HIGHEST_LATENCY_MICROS));
+            serviceTime.recordValue(Math.min((now - request.sent) / 1000, HIGHEST_LATENCY_MICROS));
+            if (status >= 300) errors++;
+        }
+
+        private void reset() {
+            latency.reset();
+            serviceTime.reset();
+            errors = 0;
+            shed = 0;
+        }
+    }
+
+    private static final class Request {
+
+        private final Endpoint endpoint;
+        private final long intended;
+        private long sent;
+
+        private Request(final Endpoint endpoint, final long intended) {
+            this.endpoint = endpoint;
+            this.intended = intended;
+        }
+    }
+
+    private final class Connection extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+        private Channel channel;
+        private Request inFlight;
+
+        @Override
+        public void channelActive(final ChannelHandlerContext ctx) {
+            channel = ctx.channel();
+            next();
+        }
+
+        @Override
+        protected void channelRead0(final ChannelHandlerContext ctx, final FullHttpResponse response) {
+            inFlight.endpoint.record(inFlight, response.status().code());
+            inFlight = null;
+            if (HttpUtil.isKeepAlive(response)) {
+                next();
+            } else {
+                ctx.close();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+            ctx.close();
+        }
+
+        // the replacement takes over the backlog once it is connected
+        @Override
+        public void channelInactive(final ChannelHandlerContext ctx) {
+            idle.remove(this);
+            if (inFlight != null) inFlight.endpoint.errors++;
+            if (!stopping) bootstrap.connect();
+        }
+
+        private void next() {
+            Request request = backlog.poll();
+            if (request == null) {
+                idle.add(this);
+            } else {
+                send(request);
+            }
+        }
+
+        private void send(final Request request) {
+            inFlight = request;
+            request.sent = System.nanoTime();
+            channel.writeAndFlush(request.endpoint.request());
+        }
+    }
+
+    private final class Report {
+
+        private final double elapsed;
+        private final long scheduled;
+        private final int backlog;
+        private final Histogram[] latencies;
+        private final Histogram[] serviceTimes;
+        private final long[] errors;
+        private final long[] shed;
+
+        private Report(final long elapsedNanos) {
+            Endpoint[] endpoints = {post, get};
+            this.elapsed = elapsedNanos / 1e9;
+            this.scheduled = LoadGenerator.this.scheduled;
+            this.backlog = LoadGenerator.this.backlog.size();
+            this.latencies = new Histogram[endpoints.length];
+            this.serviceTimes = new Histogram[endpoints.length];
+            this.errors = new long[endpoints.length];
+            this.shed = new long[endpoints.length];
+            for (int i = 0; i < endpoints.length; i++) {
+                latencies[i] = endpoints[i].latency.getIntervalHistogram();
+                serviceTimes[i] = endpoints[i].serviceTime.getIntervalHistogram();
+                errors[i] = endpoints[i].errors;
+                shed[i] = endpoints[i].shed;
+            }
+        }
+
+        private void print() {
+            System.out.printf("  %d requests scheduled, %d waiting for a connection at the end%n", scheduled, backlog);
+            String[] names = {post.name, get.name};
+            for (int i = 0; i < names.length; i++) {
+                Histogram latency = latencies[i];
+                System.out.printf("  %-20s %8.0f req/s  %d errors  %d shed%n",
+                        names[i], latency.getTotalCount() / elapsed, errors[i], shed[i]);
+                System.out.printf("    latency       p50 %8d us  p99 %8d us  p99.9 %8d us  max %8d us%n",
+                        latency.getValueAtPercentile(50), latency.getValueAtPercentile(99),
+                        latency.getValueAtPercentile(99.9), latency.getMaxValue());
+                Histogram service = serviceTimes[i];
+                System.out.printf("    service time  p50 %8d us  p99 %8d us  p99.9 %8d us  max %8d us%n",
+                        service.getValueAtPercentile(50), service.getValueAtPercentile(99),
+                        service.getValueAtPercentile(99.9), service.getMaxValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.n26;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.HOST;
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpMethod.POST;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares the servlet stack (Spring MVC on Tomcat) with the {@code reactive} profile (WebFlux on Netty)
+ * under many concurrent keep-alive connections. Not a JMH benchmark, every stack is started in-process
+ * and driven over loopback, each connection alternating {@code POST /transactions} and {@code GET /statistics}
+ * in a closed loop, so at most one request per connection is in flight.
+ *
+ * mvn -P benchmark test-compile exec:exec -Djmh.main=com.n26.WebStackBenchmark
+ * -Djmh.args="[connections=10000] [seconds=30] [stacks=servlet,reactive]"
+ *
+ * Client and server share the process, so the open file limit has to exceed twice the connections.
+ * Connections closed by the server, Tomcat does so after 100 requests by default, are replaced.
+ */
+public final class WebStackBenchmark {
+
+    private static final int CONNECT_BATCH = 500;
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final String stack;
+    private final int connections;
+    private final int seconds;
+
+    private final Recorder postLatency = new Recorder(HIGHEST_LATENCY_MICROS, 3);
+    private final Recorder getLatency = new Recorder(HIGHEST_LATENCY_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+    private volatile boolean running = true;
+    private Bootstrap bootstrap;
+
+    private WebStackBenchmark(final String stack, final int connections, final int seconds) {
+        this.stack = stack;
+        this.connections = connections;
+        this.seconds = seconds;
+    }
+
+    public static void main(String... args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        String[] stacks = (args.length > 2 ? args[2] : "servlet,reactive").split(",");
+
+        for (String stack : stacks) {
+            new WebStackBenchmark(stack, connections, seconds).run();
+        }
+    }
+
+    private void run() throws Exception {
+        boolean reactive = Application.REACTIVE_PROFILE.equals(stack);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .web(reactive ? WebApplicationType.REACTIVE : WebApplicationType.SERVLET)
+                .profiles(reactive ? new String[]{Application.REACTIVE_PROFILE} : new String[0])
+                .properties("server.port=0",
+                        "server.tomcat.max-connections=" + (connections + CONNECT_BATCH),
+                        "server.tomcat.accept-count=" + CONNECT_BATCH,
+                        "logging.level.root=WARN")
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        EventLoopGroup group = new NioEventLoopGroup();
+        try {
+            List<Channel> channels = connect(group, port);
+            // the first third warms up both sides, its latencies are dropped
+            TimeUnit.SECONDS.sleep(Math.max(1, seconds / 3));
+            postLatency.getIntervalHistogram();
+            getLatency.getIntervalHistogram();
+            errors.reset();
+
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(seconds);
+            Histogram posts = postLatency.getIntervalHistogram();
+            Histogram gets = getLatency.getIntervalHistogram();
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            running = false;
+
+            System.out.printf("%s, %d connections, %d errors%n", stack, channels.size(), errors.sum());
+            report("POST /transactions", posts, elapsed);
+            report("GET /statistics", gets, elapsed);
+
+            // in-flight responses are awaited, closing mid-response only produces server side noise
+            TimeUnit.SECONDS.sleep(1);
+            channels.forEach(Channel::close);
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+            context.close();
+        }
+    }
+
+    private List<Channel> connect(final EventLoopGroup group, final int port) throws InterruptedException {
+        bootstrap = new Bootstrap()
+                .group(group)
+                .remoteAddress("127.0.0.1", port)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(final SocketChannel channel) {
+                        channel.pipeline()
+                                .addLast(new HttpClientCodec())
+                                .addLast(new HttpObjectAggregator(64 * 1024))
+                                .addLast(new Connection());
+                    }
+                });
+
+        List<Channel> channels = new ArrayList<>(connections);
+        // in batches, the accept backlog of either server would overflow otherwise
+        for (int connected = 0; connected < connections; connected += CONNECT_BATCH) {
+            List<ChannelFuture> batch = new ArrayList<>(CONNECT_BATCH);
+            for (int i = connected; i < Math.min(connections, connected + CONNECT_BATCH); i++) {
+                batch.add(bootstrap.connect());
+            }
+            for (ChannelFuture future : batch) {
+                if (future.await().isSuccess()) {
+                    channels.add(future.channel());
+                } else {
+                    errors.increment();
+                }
+            }
+        }
+        return channels;
+    }
+
+    private static void report(final String endpoint, final Histogram latency, final double elapsed) {
+        System.out.printf("  %-20s %10.0f req/s  p50 %8d us  p99 %8d us  p99.9 %8d us  max %8d us%n",
+                endpoint,
+                latency.getTotalCount() / elapsed,
+                latency.getValueAtPercentile(50),
+                latency.getValueAtPercentile(99),
+                latency.getValueAtPercentile(99.9),
+                latency.getMaxValue());
+    }
+
+    private final class Connection extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+        private boolean post;
+        private long sentAt;
+
+        @Override
+        public void channelActive(final ChannelHandlerContext ctx) {
+            send(ctx);
+        }
+
+        @Override
+        protected void channelRead0(final ChannelHandlerContext ctx, final FullHttpResponse response) {
+            long micros = (System.nanoTime() - sentAt) / 1000;
+            (post ? postLatency : getLatency).recordValue(Math.min(micros, HIGHEST_LATENCY_MICROS));
+            if (response.status().code() >= 300) errors.increment();
+            if (!HttpUtil.isKeepAlive(response)) {
+                ctx.close();
+                if (running) bootstrap.connect();
+            } else if (running) {
+                send(ctx);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+            errors.increment();
+            ctx.close();
+        }
+
+        private void send(final ChannelHandlerContext ctx) {
+            post = !post;
+            FullHttpRequest request = post ? transaction() : new DefaultFullHttpRequest(HTTP_1_1, GET, "/statistics");
+            request.headers().set(HOST, "localhost");
+            sentAt = System.nanoTime();
+            ctx.writeAndFlush(request);
+        }
+
+        private FullHttpRequest transaction() {
+            byte[] body = ("{\"amount\":\"12.3343\",\"timestamp\":\"" + Instant.now() + "\"}").getBytes(UTF_8);
+            FullHttpRequest request = new DefaultFullHttpRequest(HTTP_1_1, POST, "/transactions", Unpooled.wrappedBuffer(body));
+            request.headers().set(CONTENT_TYPE, "application/json");
+            request.headers().set(CONTENT_LENGTH, body.length);
+            return request;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.n26.controller.validation;
+
+import com.n26.config.StatisticsProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampValidatorBenchmark {
+
+    FutureTimestampValidator futureTimestampValidator = new FutureTimestampValidator(new StatisticsProperties());
+    TimeoutTimestampValidator timeoutTimestampValidator = new TimeoutTimestampValidator(new StatisticsProperties());
+    long now;
+    long timestamp;
+
+    @Setup
+    public void setUp() {
+        now = System.currentTimeMillis();
+        timestamp = now - 30_000L;
+    }
+
+    @Benchmark
+    public boolean future() {
+        return futureTimestampValidator.isValid(timestamp, now);
+    }
+
+    @Benchmark
+    public boolean timeout() {
+        return timeoutTimestampValidator.isValid(timestamp, now);
+    }
+}
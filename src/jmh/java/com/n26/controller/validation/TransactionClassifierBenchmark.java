@@ -0,0 +1,64 @@
+package com.n26.controller.validation;
+
+import com.n26.domain.Transaction;
+import com.n26.metrics.TransactionMetrics.RejectionReason;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Cost of {@link TransactionClassifier} per verdict, the first failing check decides
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionClassifierBenchmark {
+
+    @Param({"accepted", "future", "old", "negative"})
+    String kind;
+
+    TransactionClassifier classifier = new TransactionClassifier();
+    Transaction transaction;
+
+    @Setup
+    public void setUp() {
+        // the timestamps have to keep their verdict for the whole run
+        ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+        switch (kind) {
+            case "future":
+                transaction = new Transaction(new BigDecimal("12.3343"), now.plusHours(1L));
+                break;
+            case "old":
+                transaction = new Transaction(new BigDecimal("12.3343"), now.minusHours(1L));
+                break;
+            case "negative":
+                transaction = new Transaction(new BigDecimal("-12.3343"), now.minusSeconds(30L));
+                break;
+            default:
+                transaction = new Transaction(new BigDecimal("12.3343"), now.minusSeconds(30L));
+        }
+    }
+
+    @Benchmark
+    public RejectionReason classify() {
+        return classifier.classify(transaction, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,79 @@
+package com.n26.repository;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.config.StatisticsProperties.EngineType;
+import com.n26.domain.Transaction;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Inserts at a fixed rate into the SCHEDULED engine and reports how late transactions were removed
+ * after leaving the window, taken from the {@code statistics.expiry.lag} timer. Not a JMH benchmark.
+ *
+ * mvn -P benchmark test-compile exec:exec -Djmh.main=com.n26.repository.ExpiryLagBenchmark
+ * -Djmh.args="[per-second=100000] [seconds=20] [window-seconds=5]"
+ *
+ * Transactions are stamped with the current time, so every one of them expires while the run goes on.
+ */
+public final class ExpiryLagBenchmark {
+
+    private ExpiryLagBenchmark() {
+    }
+
+    public static void main(String... args) throws InterruptedException {
+        long perSecond = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int windowSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(final Meter.Id id, final DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentiles(0.5, 0.99, 0.999).build().merge(config);
+            }
+        });
+        StatisticsProperties properties = new StatisticsProperties();
+        properties.setEngine(EngineType.SCHEDULED);
+        properties.setWindow(Duration.ofSeconds(windowSeconds));
+        StatisticsRepository repository = new StatisticsRepository(properties, registry, System::currentTimeMillis);
+
+        long inserted = 0;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        Transaction transaction = null;
+        for (long now = start; now < end; now = System.nanoTime()) {
+            long millis = System.currentTimeMillis();
+            // one transaction per millisecond, inserted as often as the rate asks for
+            if (transaction == null || transaction.getTimestamp().toInstant().toEpochMilli() != millis) {
+                transaction = new Transaction(new BigDecimal("12.3343"), Instant.ofEpochMilli(millis).atZone(UTC));
+            }
+            long due = (now - start) * perSecond / 1_000_000_000L;
+            for (; inserted < due; inserted++) {
+                repository.insert(transaction, millis);
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        TimeUnit.SECONDS.sleep(windowSeconds + 1);
+
+        Timer lag = registry.get("statistics.expiry.lag").timer();
+        System.out.printf("%.0f inserts/s, %d removals, %.0f still pending%n", inserted / elapsed, lag.count(),
+                registry.get("statistics.expiry.pending").gauge().value());
+        System.out.printf("expiry lag  mean %.2f ms", lag.mean(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : lag.takeSnapshot().percentileValues()) {
+            System.out.printf("  p%s %.2f ms", percentile.percentile() * 100, percentile.value(TimeUnit.MILLISECONDS));
+        }
+        System.out.printf("  max %.2f ms%n", lag.max(TimeUnit.MILLISECONDS));
+        repository.close();
+    }
+}
@@ -0,0 +1,88 @@
+package com.n26.repository;
+
+import com.n26.domain.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Insert throughput of the ring buffer engine with and without writer striping.
+ * {@link #main(String...)} repeats the benchmark for 1 to 32 threads, run it with
+ * {@code mvn -P benchmark test-compile exec:exec -Djmh.main=com.n26.repository.RingBufferInsertBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingBufferInsertBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+
+    @Param({"1", "32"})
+    int stripes;
+
+    RingBufferEngine engine;
+
+    @Setup
+    public void setUp() {
+        engine = new RingBufferEngine(Duration.ofMillis(50), Collections.singleton(Duration.ofSeconds(60)),
+                size -> new StripedSlotStore(size, stripes, FixedPointSlotStore::new));
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        Transaction transaction;
+
+        // the timestamp has to stay inside the window for the whole iteration
+        @Setup(Level.Iteration)
+        public void setUp() {
+            transaction = new Transaction(new BigDecimal("12.3343"), OffsetDateTime.now(UTC).toZonedDateTime());
+        }
+    }
+
+    @Benchmark
+    public void insert(final ThreadState state) {
+        engine.insert(state.transaction, System.currentTimeMillis());
+    }
+
+    public static void main(String... args) throws RunnerException {
+        StringBuilder report = new StringBuilder(String.format("%8s %8s %16s%n", "threads", "stripes", "ops/us"));
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(RingBufferInsertBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            for (RunResult result : new Runner(options).run()) {
+                report.append(String.format("%8d %8s %16.3f%n",
+                        threads,
+                        result.getParams().getParam("stripes"),
+                        result.getPrimaryResult().getScore()));
+            }
+        }
+        System.out.println(report);
+    }
+}
@@ -0,0 +1,38 @@
+package com.n26.repository;
+
+import com.n26.config.StatisticsProperties;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Replays traffic in virtual time against the repository and reports how much faster than real time it ran
+ * and the throughput inside the engine. Not a JMH benchmark, see {@link StatisticsSimulation}.
+ *
+ * mvn -P benchmark test-compile exec:exec -Djmh.main=com.n26.repository.SimulationBenchmark
+ * -Djmh.args="[minutes=60] [per-second=1000] [query-millis=100] [verify=false] [trace-file]"
+ *
+ * Without a trace file Poisson traffic is generated. Verifying scans every transaction of the longest window
+ * per read, keep the rate low then.
+ */
+public final class SimulationBenchmark {
+
+    private SimulationBenchmark() {
+    }
+
+    public static void main(String... args) {
+        int minutes = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        double perSecond = args.length > 1 ? Double.parseDouble(args[1]) : 1000;
+        long queryMillis = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        boolean verify = args.length > 3 && Boolean.parseBoolean(args[3]);
+        Trace trace = args.length > 4
+                ? Trace.read(Paths.get(args[4]))
+                : Trace.generate(42L, System.currentTimeMillis(), Duration.ofMinutes(minutes), perSecond, Duration.ofSeconds(2));
+
+        StatisticsSimulation simulation = new StatisticsSimulation(new StatisticsProperties(),
+                Duration.ofMillis(queryMillis), verify);
+        // the first run warms up the engine and the generator
+        simulation.run(Trace.generate(1L, System.currentTimeMillis(), Duration.ofMinutes(5), perSecond, Duration.ofSeconds(2)));
+        System.out.println(simulation.run(trace));
+    }
+}
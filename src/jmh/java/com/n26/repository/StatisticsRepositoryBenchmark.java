@@ -0,0 +1,132 @@
+package com.n26.repository;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.config.StatisticsProperties.Arithmetic;
+import com.n26.domain.Statistics;
+import com.n26.domain.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Repository hot paths, separately and as read/write mixes.
+ * Thread count of the separate benchmarks is set with {@code -t}, the mixes have a fixed reader to writer ratio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatisticsRepositoryBenchmark {
+
+    private static final int DISTINCT_TRANSACTIONS = 1024;
+
+    @Param({"FIXED_POINT", "BIG_DECIMAL"})
+    Arithmetic arithmetic;
+
+    @Param({"1"})
+    int stripes;
+
+    @Param({"false"})
+    boolean offHeap;
+
+    @Param({"false"})
+    boolean percentiles;
+
+    // non-zero lets reads fold the final slots once per slot, older transactions are rejected on insert
+    @Param({"0"})
+    long allowedLatenessMillis;
+
+    StatisticsRepository repository;
+
+    @Setup
+    public void setUp() {
+        StatisticsProperties properties = new StatisticsProperties();
+        properties.setArithmetic(arithmetic);
+        properties.setStripes(stripes);
+        properties.setOffHeap(offHeap);
+        properties.setPercentiles(percentiles);
+        properties.setAllowedLateness(Duration.ofMillis(allowedLatenessMillis));
+        repository = new StatisticsRepository(properties);
+    }
+
+    @State(Scope.Thread)
+    public static class Transactions {
+        Transaction[] transactions = new Transaction[DISTINCT_TRANSACTIONS];
+        int next;
+
+        // spread over the window like production traffic, refreshed so nothing expires during an iteration
+        @Setup(Level.Iteration)
+        public void setUp() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            ZonedDateTime now = OffsetDateTime.now(UTC).toZonedDateTime();
+            for (int i = 0; i < transactions.length; i++) {
+                BigDecimal amount = BigDecimal.valueOf(random.nextLong(100_000_000L), 2);
+                transactions[i] = new Transaction(amount, now.minusNanos(random.nextLong(30_000_000_000L)));
+            }
+        }
+
+        Transaction next() {
+            return transactions[next++ & (DISTINCT_TRANSACTIONS - 1)];
+        }
+    }
+
+    @Benchmark
+    public void insert(final Transactions transactions) {
+        repository.insert(transactions.next());
+    }
+
+    @Benchmark
+    public Statistics getStatistics() {
+        return repository.getStatistics();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(1)
+    public Statistics writeHeavyRead() {
+        return repository.getStatistics();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(7)
+    public void writeHeavyInsert(final Transactions transactions) {
+        repository.insert(transactions.next());
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(7)
+    public Statistics readHeavyRead() {
+        return repository.getStatistics();
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public void readHeavyInsert(final Transactions transactions) {
+        repository.insert(transactions.next());
+    }
+}
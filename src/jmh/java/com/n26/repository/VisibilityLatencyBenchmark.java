@@ -0,0 +1,120 @@
+package com.n26.repository;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.config.StatisticsProperties.EngineType;
+import com.n26.config.StatisticsProperties.WaitStrategy;
+import com.n26.domain.Transaction;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Inserts at a fixed rate from several publisher threads and reports the cost of an insert and, for the
+ * SINGLE_WRITER engine, how long a transaction took to become visible to readers, taken from the
+ * {@code statistics.insert} and {@code statistics.visibility.latency} timers. The SCHEDULED engine applies
+ * inserts under its lock, it is run first as the baseline. Not a JMH benchmark.
+ *
+ * mvn -P benchmark test-compile exec:exec -Djmh.main=com.n26.repository.VisibilityLatencyBenchmark
+ * -Djmh.args="[per-second=100000] [seconds=10] [publishers=4] [wait-strategies=BUSY_SPIN,YIELDING,SLEEPING,BLOCKING]"
+ */
+public final class VisibilityLatencyBenchmark {
+
+    private VisibilityLatencyBenchmark() {
+    }
+
+    public static void main(String... args) throws InterruptedException {
+        long perSecond = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int publishers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        String strategies = args.length > 3 ? args[3] : "BUSY_SPIN,YIELDING,SLEEPING,BLOCKING";
+
+        run(EngineType.SCHEDULED, null, perSecond, seconds, publishers);
+        for (String strategy : strategies.split(",")) {
+            run(EngineType.SINGLE_WRITER, WaitStrategy.valueOf(strategy.trim()), perSecond, seconds, publishers);
+        }
+    }
+
+    private static void run(final EngineType engine,
+                            final WaitStrategy waitStrategy,
+                            final long perSecond,
+                            final int seconds,
+                            final int publishers) throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(final Meter.Id id, final DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentiles(0.5, 0.99, 0.999).build().merge(config);
+            }
+        });
+        StatisticsProperties properties = new StatisticsProperties();
+        properties.setEngine(engine);
+        if (waitStrategy != null) properties.setWriterWaitStrategy(waitStrategy);
+        StatisticsRepository repository = new StatisticsRepository(properties, registry, System::currentTimeMillis);
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < publishers; i++) {
+            Thread thread = new Thread(() -> publish(repository, perSecond / publishers, start, end), "publisher-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        // lets the writer catch up with the backlog before the timers are read
+        TimeUnit.MILLISECONDS.sleep(100L);
+
+        Timer insert = registry.get("statistics.insert").timer();
+        System.out.printf("%s%s, %.0f inserts/s from %d publishers%n", engine,
+                waitStrategy == null ? "" : " " + waitStrategy, insert.count() / elapsed, publishers);
+        print("insert", insert);
+        if (engine == EngineType.SINGLE_WRITER) {
+            print("visibility", registry.get("statistics.visibility.latency").timer());
+            System.out.printf("  %.1f events per batch, ring full %.0f times%n",
+                    registry.get("statistics.writer.batch").summary().mean(),
+                    registry.get("statistics.writer.ring.full").counter().count());
+        }
+        repository.close();
+    }
+
+    private static void publish(final StatisticsRepository repository,
+                                final long perSecond,
+                                final long start,
+                                final long end) {
+        long inserted = 0;
+        Transaction transaction = null;
+        for (long now = start; now < end; now = System.nanoTime()) {
+            long millis = System.currentTimeMillis();
+            // one transaction per millisecond, inserted as often as the rate asks for
+            if (transaction == null || transaction.getTimestamp().toInstant().toEpochMilli() != millis) {
+                transaction = new Transaction(new BigDecimal("12.3343"), Instant.ofEpochMilli(millis).atZone(UTC));
+            }
+            long due = (now - start) * perSecond / 1_000_000_000L;
+            for (; inserted < due; inserted++) {
+                repository.insert(transaction, millis);
+            }
+        }
+    }
+
+    private static void print(final String name, final Timer timer) {
+        System.out.printf("  %-10s mean %8.2f us", name, timer.mean(TimeUnit.MICROSECONDS));
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            System.out.printf("  p%s %8.2f us", percentile.percentile() * 100, percentile.value(TimeUnit.MICROSECONDS));
+        }
+        System.out.printf("  max %8.2f us%n", timer.max(TimeUnit.MICROSECONDS));
+    }
+}
@@ -1,13 +1,29 @@
 package com.n26;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
 
 @SpringBootApplication
 public class Application {
 
+    public static final String REACTIVE_PROFILE = "reactive";
+
     public static void main(String... args) {
-        SpringApplication.run(Application.class, args);
+        SpringApplication application = new SpringApplication(Application.class);
+        application.setWebApplicationType(webApplicationType(args));
+        application.run(args);
     }
 
+    /**
+     * The type has to be known before the environment is created,
+     * {@code spring.main.web-application-type} alone would keep the servlet environment
+     */
+    static WebApplicationType webApplicationType(final String... args) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        return environment.acceptsProfiles(REACTIVE_PROFILE) ? WebApplicationType.REACTIVE : WebApplicationType.SERVLET;
+    }
 }
@@ -0,0 +1,64 @@
+package com.n26.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Wall clock in epoch millis shared by validation and the repository, a request reads it once and takes
+ * all its time decisions against that reading.
+ *
+ * With a tick a background thread updates the reading, so {@link #millis()} is a volatile read and
+ * lags at most one tick behind the system clock. Without a tick every call reads the system clock.
+ */
+@Component
+public class CoarseClock {
+
+    private final ScheduledExecutorService ticker;
+    private volatile long now;
+
+    /**
+     * System clock without a tick
+     */
+    public CoarseClock() {
+        this(Duration.ZERO);
+    }
+
+    @Autowired
+    public CoarseClock(final StatisticsProperties properties) {
+        this(properties.getClockTick());
+    }
+
+    public CoarseClock(final Duration tick) {
+        if (tick.isNegative()) {
+            throw new IllegalArgumentException("Clock tick must not be negative, got " + tick);
+        }
+        if (tick.isZero()) {
+            this.ticker = null;
+            return;
+        }
+        this.now = System.currentTimeMillis();
+        this.ticker = newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1L, tick.toMillis());
+        ticker.scheduleAtFixedRate(() -> now = System.currentTimeMillis(), interval, interval, MILLISECONDS);
+    }
+
+    public long millis() {
+        return ticker == null ? System.currentTimeMillis() : now;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) ticker.shutdownNow();
+    }
+}
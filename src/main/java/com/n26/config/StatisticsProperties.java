@@ -0,0 +1,213 @@
+package com.n26.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "statistics")
+public class StatisticsProperties {
+
+    /**
+     * Window served when none is requested, older transactions are not accepted
+     */
+    private Duration window = Duration.ofSeconds(60);
+
+    /**
+     * Further windows served from the same storage, the longest one determines how long transactions are kept
+     */
+    private List<Duration> windows = Arrays.asList(
+            Duration.ofSeconds(1), Duration.ofSeconds(10), Duration.ofSeconds(60), Duration.ofMinutes(5));
+
+    /**
+     * Maximum number of transaction keys with own statistics, transactions of further keys only count globally
+     */
+    private int maxKeys = 1_000_000;
+
+    /**
+     * Time covered by a single bucket of a per-key window, the default window must be a multiple of it
+     */
+    private Duration keyResolution = Duration.ofSeconds(1);
+
+    /**
+     * How far a timestamp may be ahead of the clock, covering producers whose clocks run fast.
+     * Such a transaction is accepted right away and counts once its timestamp is reached,
+     * the SCHEDULED engine counts it from its arrival
+     */
+    private Duration futureSkew = Duration.ZERO;
+
+    /**
+     * How far a timestamp may be behind the clock, zero accepts transactions as long as they are inside the window.
+     * Ring buffer slots behind this watermark are final, reads fold them once per slot instead of on every call
+     */
+    private Duration allowedLateness = Duration.ZERO;
+
+    /**
+     * Update interval of the shared clock, zero reads the system clock on every call
+     */
+    private Duration clockTick = Duration.ZERO;
+
+    /**
+     * Storage engine backing the statistics repository
+     */
+    private EngineType engine = EngineType.RING_BUFFER;
+
+    /**
+     * Interval at which the SCHEDULED and SINGLE_WRITER engines remove expired transactions, all of a tick in one update
+     */
+    private Duration expiryTick = Duration.ofMillis(1);
+
+    /**
+     * Events the SINGLE_WRITER engine can hold before publishers wait, rounded up to a power of two
+     */
+    private int writerRingSize = 1 << 16;
+
+    /**
+     * How the writer thread of the SINGLE_WRITER engine waits for published transactions
+     */
+    private WaitStrategy writerWaitStrategy = WaitStrategy.BLOCKING;
+
+    /**
+     * Time covered by a single ring buffer slot, every window length must be a multiple of it
+     */
+    private Duration slotResolution = Duration.ofMillis(50);
+
+    /**
+     * Whether the ring buffer keeps amount sketches and reports p50, p90 and p99
+     */
+    private boolean percentiles = false;
+
+    /**
+     * Time covered by a single sketch slot, every window length must be a multiple of it
+     */
+    private Duration percentileResolution = Duration.ofSeconds(1);
+
+    /**
+     * Number representation used by the ring buffer slots
+     */
+    private Arithmetic arithmetic = Arithmetic.FIXED_POINT;
+
+    /**
+     * Whether ring buffer slots are kept in direct memory, so the heap does not grow with the number of slots.
+     * Slots are then always fixed point, whatever the arithmetic
+     */
+    private boolean offHeap = false;
+
+    /**
+     * Number of independent slot stores writers are spread over, rounded up to a power of two
+     */
+    private int stripes = 1;
+
+    /**
+     * Directory of the transaction journal replayed on startup, no journal is written when empty
+     */
+    private String journalDir = "";
+
+    /**
+     * Capacity of a journal segment file in transactions, 32 bytes each
+     */
+    private int journalSegmentRecords = 1 << 20;
+
+    /**
+     * Interval at which journaled transactions are forced to disk, one sync covers all of them
+     */
+    private Duration journalCommitInterval = Duration.ofMillis(10);
+
+    /**
+     * Ingestion requests processed at once, further ones wait in a queue. Zero or less disables admission control
+     */
+    private int ingestConcurrency = 32;
+
+    /**
+     * Ingestion requests waiting for admission, any further one is answered with 503 right away.
+     * Together with the concurrency it has to stay below the web server's worker threads to ever take effect
+     */
+    private int ingestQueue = 64;
+
+    /**
+     * Longest wait of a queued ingestion request before it is answered with 503
+     */
+    private Duration ingestQueueTimeout = Duration.ofMillis(100);
+
+    /**
+     * Retry-After sent with refused ingestion requests, rounded up to whole seconds
+     */
+    private Duration ingestRetryAfter = Duration.ofSeconds(1);
+
+    /**
+     * TCP port of the binary ingestion listener, 0 picks a free port, negative disables it
+     */
+    private int binaryPort = -1;
+
+    /**
+     * Interval at which the statistics stream checks the window
+     */
+    private Duration streamInterval = Duration.ofMillis(100);
+
+    /**
+     * Whether the statistics stream emits at every interval or only when the statistics changed
+     */
+    private StreamMode streamMode = StreamMode.ON_CHANGE;
+
+    public enum EngineType {
+        /**
+         * Fixed ring of per-slot aggregates, expired lazily on access
+         */
+        RING_BUFFER,
+        /**
+         * Single running aggregate with a removal per transaction on a timing wheel, serves only the default window
+         */
+        SCHEDULED,
+        /**
+         * Like SCHEDULED, but inserts are published to a ring buffer and applied in batches by a single writer
+         * thread without locks, so they become visible asynchronously
+         */
+        SINGLE_WRITER
+    }
+
+    public enum WaitStrategy {
+        /**
+         * Spins on the ring, lowest latency at the cost of a whole core
+         */
+        BUSY_SPIN,
+        /**
+         * Spins, then yields the core to other threads between checks
+         */
+        YIELDING,
+        /**
+         * Spins, yields, then parks for the shortest time the OS allows between checks
+         */
+        SLEEPING,
+        /**
+         * Parks until a publisher wakes it up, no CPU while idle at the cost of a wake-up per batch
+         */
+        BLOCKING
+    }
+
+    public enum Arithmetic {
+        /**
+         * Amounts kept as long micro-units, falling back to BigDecimal when they do not fit
+         */
+        FIXED_POINT,
+        /**
+         * Every slot update allocates new BigDecimal values
+         */
+        BIG_DECIMAL
+    }
+
+    public enum StreamMode {
+        /**
+         * The current statistics at every interval, unchanged ones included
+         */
+        EVERY_INTERVAL,
+        /**
+         * Only statistics differing from the previously emitted ones
+         */
+        ON_CHANGE
+    }
+}
@@ -0,0 +1,97 @@
+package com.n26.controller;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.controller.exception.ApiError;
+import com.n26.metrics.TransactionMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.n26.metrics.TransactionMetrics.RejectionReason.OVERLOADED;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Admission control of the ingestion endpoints. At most the configured number of requests is processed at once,
+ * further ones wait in arrival order in a bounded queue for at most the queue timeout. Requests beyond
+ * the queue, or waiting longer, are refused right away, so accepted requests keep their latency
+ * instead of every request queueing in the web server and on the write path.
+ */
+@Component
+public class IngestionLimiter {
+
+    private final Semaphore permits;
+    private final int maxQueued;
+    private final long queueTimeoutNanos;
+    private final long retryAfterSeconds;
+    private final TransactionMetrics transactionMetrics;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    @Autowired
+    public IngestionLimiter(final StatisticsProperties properties,
+                            final TransactionMetrics transactionMetrics,
+                            final MeterRegistry registry) {
+        int concurrency = properties.getIngestConcurrency();
+        this.permits = concurrency > 0 ? new Semaphore(concurrency, true) : null;
+        this.maxQueued = Math.max(0, properties.getIngestQueue());
+        this.queueTimeoutNanos = properties.getIngestQueueTimeout().toNanos();
+        // Retry-After takes whole seconds
+        this.retryAfterSeconds = Math.max(1L, (properties.getIngestRetryAfter().toMillis() + 999) / 1000);
+        this.transactionMetrics = transactionMetrics;
+        Gauge.builder("transactions.ingest.queued", queued, AtomicInteger::get)
+                .description("Ingestion requests waiting for admission")
+                .register(registry);
+    }
+
+    /**
+     * Waits in the queue if every slot is taken, {@link #release()} has to follow an admission
+     *
+     * @return whether the request is admitted
+     */
+    public boolean acquire() throws InterruptedException {
+        if (permits == null) return true;
+        // honours the order of waiting requests, unlike tryAcquire()
+        if (permits.tryAcquire(0, NANOSECONDS)) return true;
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return refused();
+        }
+        try {
+            return permits.tryAcquire(queueTimeoutNanos, NANOSECONDS) || refused();
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Admits without waiting, for callers which must not block
+     *
+     * @return whether the request is admitted
+     */
+    public boolean tryAcquire() {
+        if (permits == null) return true;
+        return permits.tryAcquire() || refused();
+    }
+
+    public void release() {
+        if (permits != null) permits.release();
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public ApiError error() {
+        return new ApiError(SERVICE_UNAVAILABLE, "Ingestion is at capacity", "retry after " + retryAfterSeconds + "s");
+    }
+
+    private boolean refused() {
+        transactionMetrics.rejected(OVERLOADED);
+        return false;
+    }
+}
@@ -3,23 +3,75 @@ package com.n26.controller;
 import com.n26.domain.Statistics;
 import com.n26.service.StatisticsService;
 import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.Disposable;
 
+import java.io.IOException;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 
 @AllArgsConstructor
 @RestController("/statistics")
+@ConditionalOnWebApplication(type = SERVLET)
 public class StatisticsController {
 
     public static final int VIEW_SCALE = 2;
 
+    // the async request stays open until the client disconnects
+    private static final long NO_TIMEOUT = 0L;
+
     private final StatisticsService statisticsService;
+    private final StatisticsSnapshotCache statisticsSnapshotCache;
+    private final StatisticsWindows statisticsWindows;
+    private final StatisticsStream statisticsStream;
 
+    /**
+     * @param window e.g. {@code 10s} or {@code 5m}, the configured default window when absent
+     */
     @RequestMapping(method = GET)
-    public ResponseEntity getStatistics() {
-        Statistics statistics = statisticsService.getStatistics();
-        return ResponseEntity.ok(statistics);
+    public ResponseEntity<byte[]> getStatistics(@RequestParam(value = "window", required = false) final String window) {
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_JSON_UTF8)
+                .body(statisticsSnapshotCache.getJson(statisticsWindows.resolve(window)));
+    }
+
+    /**
+     * Server-sent events with the statistics of the window, see {@link StatisticsStream}
+     */
+    @RequestMapping(value = "/statistics/stream", method = GET)
+    public ResponseEntity<ResponseBodyEmitter> streamStatistics(@RequestParam(value = "window", required = false) final String window) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(NO_TIMEOUT);
+        Disposable subscription = statisticsStream.getFramesForBlockingWriter(statisticsWindows.resolve(window))
+                .subscribe(frame -> send(emitter, frame), emitter::completeWithError);
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(subscription::dispose);
+        return ResponseEntity.ok().contentType(TEXT_EVENT_STREAM).body(emitter);
+    }
+
+    /**
+     * Statistics of the default window for transactions posted with the key, empty for unknown keys
+     */
+    @RequestMapping(value = "/statistics/keys/{key}", method = GET)
+    public ResponseEntity<Statistics> getKeyStatistics(@PathVariable("key") final String key) {
+        return ResponseEntity.ok(statisticsService.getStatistics(key));
+    }
+
+    private static void send(final ResponseBodyEmitter emitter, final byte[] frame) {
+        try {
+            // already an encoded event, written as is
+            emitter.send(frame, TEXT_EVENT_STREAM);
+        } catch (IOException | IllegalStateException e) {
+            // client went away, completion disposes the subscription
+            emitter.completeWithError(e);
+        }
     }
 }
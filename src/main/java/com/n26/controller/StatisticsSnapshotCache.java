@@ -0,0 +1,55 @@
+package com.n26.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.service.StatisticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the last statistics response of every window already encoded as UTF-8 JSON.
+ * The bytes are rebuilt only when the window version changed, i.e. after a write or when a slot expired,
+ * so repeated reads of an unchanged window neither fold the window nor serialize anything.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatisticsSnapshotCache {
+
+    private final StatisticsService statisticsService;
+    private final ObjectMapper objectMapper;
+
+    // the version is shared by all windows, a write or an expired slot affects each of them
+    private final Map<Duration, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * @param window one of the windows served by the repository
+     */
+    public byte[] getJson(final Duration window) {
+        // read the version first, data written meanwhile only makes the snapshot newer than its version
+        long version = statisticsService.getVersion();
+        Snapshot current = snapshots.get(window);
+        if (current != null && current.version == version) return current.json;
+
+        Snapshot rebuilt = new Snapshot(version, encode(window));
+        snapshots.put(window, rebuilt);
+        return rebuilt.json;
+    }
+
+    private byte[] encode(final Duration window) {
+        try {
+            return objectMapper.writeValueAsBytes(statisticsService.getStatistics(window));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Statistics can not be serialized", e);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Snapshot {
+        private final long version;
+        private final byte[] json;
+    }
+}
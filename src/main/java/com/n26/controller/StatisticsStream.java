@@ -0,0 +1,117 @@
+package com.n26.controller;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.config.StatisticsProperties.StreamMode;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Server-sent events of the statistics of a window. Every window has a single producer shared by all
+ * its subscribers, each interval it reads the {@link StatisticsSnapshotCache} once and hands the same
+ * encoded frame to every subscriber, so the number of subscribers does not change the serialization cost.
+ * The producer only runs while the window has subscribers, a new subscriber receives the last frame at once.
+ */
+@Component
+public class StatisticsStream {
+
+    private static final byte[] DATA = "data:".getBytes(UTF_8);
+    private static final byte[] END = "\n\n".getBytes(UTF_8);
+    private static final int BLOCKING_WRITER_TTL_SECONDS = 60;
+
+    private final StatisticsSnapshotCache statisticsSnapshotCache;
+    private final Duration interval;
+    private final StreamMode mode;
+    private final Map<Duration, Flux<byte[]>> producers = new ConcurrentHashMap<>();
+    // a thread per blocking subscriber, idle threads are kept for a minute
+    private final Scheduler blockingWriters;
+
+    public StatisticsStream(final StatisticsSnapshotCache statisticsSnapshotCache,
+                            final StatisticsProperties statisticsProperties) {
+        this.statisticsSnapshotCache = statisticsSnapshotCache;
+        this.interval = statisticsProperties.getStreamInterval();
+        this.mode = statisticsProperties.getStreamMode();
+        this.blockingWriters = Schedulers.newElastic("statistics-stream", BLOCKING_WRITER_TTL_SECONDS, true);
+    }
+
+    /**
+     * Frames for non-blocking writers, a subscriber which can not keep up only gets the newest frame
+     */
+    public Flux<byte[]> getFrames(final Duration window) {
+        return producers.computeIfAbsent(window, this::produce).onBackpressureLatest();
+    }
+
+    /**
+     * Frames delivered on a thread of the subscriber's own for as long as it is subscribed. A writer blocked by
+     * a slow client stalls neither the producer nor any other subscriber, once it returns it gets the newest frame.
+     * Costs a thread per connection, {@link #getFrames} serves non-blocking writers without one.
+     */
+    public Flux<byte[]> getFramesForBlockingWriter(final Duration window) {
+        return getFrames(window).publishOn(blockingWriters, 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        blockingWriters.dispose();
+    }
+
+    private Flux<byte[]> produce(final Duration window) {
+        return Flux.defer(() -> {
+                    Frames frames = new Frames(window);
+                    return Flux.interval(Duration.ZERO, interval)
+                            .onBackpressureDrop()
+                            .<byte[]>handle((tick, sink) -> {
+                                byte[] frame = frames.next();
+                                if (frame != null) sink.next(frame);
+                            });
+                })
+                .replay(1)
+                .refCount();
+    }
+
+    static byte[] frame(final byte[] json) {
+        byte[] frame = new byte[DATA.length + json.length + END.length];
+        System.arraycopy(DATA, 0, frame, 0, DATA.length);
+        System.arraycopy(json, 0, frame, DATA.length, json.length);
+        System.arraycopy(END, 0, frame, DATA.length + json.length, END.length);
+        return frame;
+    }
+
+    /**
+     * State of one producer run, only touched by the producer
+     */
+    private final class Frames {
+
+        private final Duration window;
+        private byte[] json;
+        private byte[] frame;
+
+        private Frames(final Duration window) {
+            this.window = window;
+        }
+
+        /**
+         * @return frame to emit, {@code null} if nothing is due
+         */
+        private byte[] next() {
+            byte[] current = statisticsSnapshotCache.getJson(window);
+            // the version moves on with every expired slot, the bytes tell whether anything visible changed
+            boolean changed = frame == null || (current != json && !Arrays.equals(current, json));
+            json = current;
+            if (changed) {
+                frame = frame(current);
+                return frame;
+            }
+            return mode == StreamMode.EVERY_INTERVAL ? frame : null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.n26.controller;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.controller.exception.UnknownWindowException;
+import com.n26.service.StatisticsService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Resolves the {@code window} request parameter of the servlet and the reactive statistics endpoints
+ */
+@Component
+@AllArgsConstructor
+public class StatisticsWindows {
+
+    private final StatisticsService statisticsService;
+    private final StatisticsProperties statisticsProperties;
+
+    /**
+     * @param window e.g. {@code 10s} or {@code 5m}, the configured default window when {@code null}
+     * @throws UnknownWindowException if the window is not a duration or not served
+     */
+    public Duration resolve(final String window) {
+        if (window == null) return statisticsProperties.getWindow();
+
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new UnknownWindowException(window, statisticsService.getWindows());
+        }
+        if (!statisticsService.getWindows().contains(duration)) {
+            throw new UnknownWindowException(window, statisticsService.getWindows());
+        }
+        return duration;
+    }
+}
@@ -0,0 +1,180 @@
+package com.n26.controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.config.CoarseClock;
+import com.n26.controller.exception.ApiError;
+import com.n26.controller.validation.TransactionClassifier;
+import com.n26.domain.BatchResult;
+import com.n26.domain.BatchResult.ItemStatus;
+import com.n26.domain.IsoTimestamp;
+import com.n26.domain.Transaction;
+import com.n26.metrics.TransactionMetrics;
+import com.n26.metrics.TransactionMetrics.RejectionReason;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NULL;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_STRING;
+import static com.n26.domain.BatchResult.ItemStatus.ACCEPTED;
+import static com.n26.domain.BatchResult.ItemStatus.INVALID;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.TOO_OLD;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.UNPARSABLE;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Stream-parses a JSON array or newline delimited JSON objects into transactions,
+ * validating every item with the same rules as a single transaction.
+ * Accepted transactions are handed over in chunks, so the body is never bound as a whole.
+ * The clock is read once per chunk, its items are classified and stored against that same reading.
+ */
+@Component
+public class TransactionBatchReader {
+
+    static final int CHUNK_SIZE = 4096;
+
+    private final ObjectMapper objectMapper;
+    private final TransactionMetrics transactionMetrics;
+
+    private final TransactionClassifier transactionClassifier;
+    private final CoarseClock clock;
+
+    public TransactionBatchReader(final ObjectMapper objectMapper,
+                                  final TransactionMetrics transactionMetrics,
+                                  final TransactionClassifier transactionClassifier,
+                                  final CoarseClock clock) {
+        this.objectMapper = objectMapper;
+        this.transactionMetrics = transactionMetrics;
+        this.transactionClassifier = transactionClassifier;
+        this.clock = clock;
+    }
+
+    /**
+     * @param sink takes each chunk of accepted transactions with the clock reading they were validated against
+     * @throws IOException if the body is not syntactically valid JSON
+     */
+    public BatchResult read(final InputStream body, final ObjLongConsumer<List<Transaction>> sink) throws IOException {
+        BatchResult result = new BatchResult();
+        List<Transaction> accepted = new ArrayList<>();
+        long now = clock.millis();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            boolean array = token == START_ARRAY;
+            if (array) token = parser.nextToken();
+
+            while (token != null && !(array && token == END_ARRAY)) {
+                Transaction transaction = readTransaction(parser);
+                ItemStatus status = classify(transaction, now);
+                result.add(status);
+
+                if (status == ACCEPTED) {
+                    accepted.add(transaction);
+                    if (accepted.size() == CHUNK_SIZE) {
+                        sink.accept(accepted, now);
+                        accepted = new ArrayList<>();
+                        now = clock.millis();
+                    }
+                }
+                token = parser.nextToken();
+            }
+        }
+
+        if (!accepted.isEmpty()) sink.accept(accepted, now);
+        return result;
+    }
+
+    /**
+     * Body of the 400 both web stacks answer a batch with which is not syntactically valid JSON
+     */
+    public static ApiError malformed(final JsonProcessingException e) {
+        return new ApiError(BAD_REQUEST, "Malformed batch", e.getOriginalMessage());
+    }
+
+    private ItemStatus classify(final Transaction transaction, final long now) {
+        RejectionReason rejection = transaction == null
+                ? UNPARSABLE
+                : transactionClassifier.classify(transaction, now);
+        if (rejection == null) return ACCEPTED;
+
+        transactionMetrics.rejected(rejection);
+        return rejection == TOO_OLD ? ItemStatus.TOO_OLD : INVALID;
+    }
+
+    /**
+     * @return transaction or null if the current value is not a complete transaction
+     */
+    private static Transaction readTransaction(final JsonParser parser) throws IOException {
+        if (parser.currentToken() != START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+
+        BigDecimal amount = null;
+        ZonedDateTime timestamp = null;
+        String key = null;
+        boolean validKey = true;
+        while (parser.nextToken() == FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "amount":
+                    amount = readAmount(parser);
+                    break;
+                case "timestamp":
+                    timestamp = readTimestamp(parser);
+                    break;
+                case "key":
+                    if (parser.currentToken() == VALUE_STRING) {
+                        key = parser.getText();
+                    } else {
+                        validKey = parser.currentToken() == VALUE_NULL;
+                        parser.skipChildren();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return amount == null || timestamp == null || !validKey ? null : new Transaction(amount, timestamp, key);
+    }
+
+    private static BigDecimal readAmount(final JsonParser parser) throws IOException {
+        if (parser.currentToken().isNumeric()) return parser.getDecimalValue();
+        if (parser.currentToken() != VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        try {
+            return new BigDecimal(parser.getText().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // same forms as a single transaction, see TransactionDeserializer
+    private static ZonedDateTime readTimestamp(final JsonParser parser) throws IOException {
+        try {
+            ZonedDateTime timestamp = IsoTimestamp.read(parser);
+            if (timestamp == null) parser.skipChildren();
+            return timestamp;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -1,25 +1,46 @@
 package com.n26.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.n26.config.CoarseClock;
+import com.n26.controller.exception.ApiError;
+import com.n26.controller.validation.TransactionClassifier;
+import com.n26.domain.BatchResult;
 import com.n26.domain.Transaction;
+import com.n26.metrics.TransactionMetrics;
+import com.n26.metrics.TransactionMetrics.RejectionReason;
 import com.n26.service.StatisticsService;
 import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 
+import static com.n26.metrics.TransactionMetrics.RejectionReason.MALFORMED;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.web.bind.annotation.RequestMethod.DELETE;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
 @AllArgsConstructor
 @RestController
+@ConditionalOnWebApplication(type = SERVLET)
 public class TransactionsController {
 
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final StatisticsService statisticsService;
+    private final TransactionBatchReader transactionBatchReader;
+    private final TransactionClassifier transactionClassifier;
+    private final TransactionMetrics transactionMetrics;
+    private final CoarseClock clock;
 
     /**
      * 201 – in case of success
@@ -29,16 +50,49 @@ public class TransactionsController {
      * 422 – if the transaction date is in the future
      *
      * 422 - if transaction amount is negative
+     * 503 - if ingestion is at capacity, see {@link IngestionAdmissionFilter}
+     *
+     * Validated and stored against a single reading of the clock, rejections are answered without an exception.
      */
     @RequestMapping(method = POST)
-    public ResponseEntity postTransaction(@RequestBody @Valid final Transaction transaction) {
-        statisticsService.add(transaction);
+    public ResponseEntity postTransaction(@RequestBody final Transaction transaction) {
+        long now = clock.millis();
+        RejectionReason rejection = transactionClassifier.classify(transaction, now);
+        if (rejection != null) return reject(rejection);
+
+        statisticsService.add(transaction, now);
         return ResponseEntity.status(CREATED).body(null);
     }
 
+    /**
+     * Accepts a JSON array or newline delimited JSON objects, every item is validated like a single transaction.
+     *
+     * 200 – with the number of accepted, too old and invalid transactions and the positions of rejected ones
+     * 400 – if the JSON is invalid
+     * 503 – if ingestion is at capacity
+     */
+    @RequestMapping(value = "/transactions/batch", method = POST, consumes = {APPLICATION_JSON_VALUE, NDJSON_VALUE})
+    public ResponseEntity postTransactions(final InputStream body) throws IOException {
+        BatchResult result;
+        try {
+            result = transactionBatchReader.read(body, statisticsService::addAll);
+        } catch (JsonProcessingException e) {
+            transactionMetrics.rejected(MALFORMED);
+            return ResponseEntity.status(BAD_REQUEST).body(TransactionBatchReader.malformed(e));
+        }
+        return ResponseEntity.ok(result);
+    }
+
     @RequestMapping(method = DELETE)
     public ResponseEntity deleteTransactions() {
         statisticsService.wipeStatistics();
         return ResponseEntity.status(NO_CONTENT).body(null);
     }
+
+    private ResponseEntity reject(final RejectionReason rejection) {
+        transactionMetrics.rejected(rejection);
+        ApiError apiError = TransactionClassifier.error(rejection);
+        HttpStatus status = apiError.getHttpStatus();
+        return ResponseEntity.status(status).body(status == NO_CONTENT ? null : apiError);
+    }
 }
@@ -0,0 +1,248 @@
+package com.n26.controller.binary;
+
+import com.n26.config.CoarseClock;
+import com.n26.config.StatisticsProperties;
+import com.n26.controller.validation.TransactionClassifier;
+import com.n26.metrics.TransactionMetrics;
+import com.n26.metrics.TransactionMetrics.RejectionReason;
+import com.n26.service.StatisticsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+import static com.n26.metrics.TransactionMetrics.RejectionReason.TOO_OLD;
+import static java.nio.channels.SelectionKey.OP_ACCEPT;
+import static java.nio.channels.SelectionKey.OP_READ;
+import static java.nio.channels.SelectionKey.OP_WRITE;
+
+/**
+ * Ingestion of transactions from internal producers over plain TCP, bypassing HTTP and JSON.
+ *
+ * A batch is an {@code int} record count of 1 to {@link #MAX_RECORDS} followed by that many 16-byte records,
+ * each the timestamp in epoch millis and the amount in micro-units as {@code long}, all big-endian.
+ * Every batch is validated against one clock reading with the rules of a single transaction and answered with
+ * an ack of three {@code int}s: accepted, too old and invalid records, in the order the batches arrived.
+ * Any other record count closes the connection.
+ *
+ * A single selector thread serves all connections. Records are decoded from a direct buffer into arrays
+ * reused per connection and handed to the repository as a whole, nothing is allocated per record.
+ */
+@Slf4j
+@Component
+public class BinaryTransactionListener {
+
+    static final int MAX_RECORDS = 4096;
+    static final int RECORD_SIZE = 16;
+    static final int ACK_SIZE = 12;
+
+    private static final int HEADER_SIZE = 4;
+    // acks of pipelined batches are collected and written at once
+    private static final int PENDING_ACKS = 64;
+
+    private final StatisticsService statisticsService;
+    private final TransactionClassifier transactionClassifier;
+    private final TransactionMetrics transactionMetrics;
+    private final CoarseClock clock;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    @Autowired
+    public BinaryTransactionListener(final StatisticsProperties properties,
+                                     final StatisticsService statisticsService,
+                                     final TransactionClassifier transactionClassifier,
+                                     final TransactionMetrics transactionMetrics,
+                                     final CoarseClock clock) {
+        this.statisticsService = statisticsService;
+        this.transactionClassifier = transactionClassifier;
+        this.transactionMetrics = transactionMetrics;
+        this.clock = clock;
+        if (properties.getBinaryPort() < 0) {
+            this.selector = null;
+            this.server = null;
+            this.thread = null;
+            return;
+        }
+
+        try {
+            this.selector = Selector.open();
+            this.server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(properties.getBinaryPort()));
+            server.configureBlocking(false);
+            server.register(selector, OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not listen on binary port " + properties.getBinaryPort(), e);
+        }
+        this.thread = new Thread(this::run, "statistics-binary");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Listening for binary transactions on port {}", getPort());
+    }
+
+    /**
+     * @return port the listener is bound to, -1 if it is disabled
+     */
+    public int getPort() {
+        return server == null ? -1 : server.socket().getLocalPort();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (thread == null) return;
+
+        running = false;
+        selector.wakeup();
+        thread.join();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid()) handle(key);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Binary listener failed", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.warn("Could not close selector", e);
+            }
+        }
+    }
+
+    private void handle(final SelectionKey key) throws IOException {
+        if (key.isAcceptable()) {
+            SocketChannel channel = server.accept();
+            if (channel == null) return;
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, OP_READ, new Connection(channel));
+            return;
+        }
+
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isWritable()) connection.process(key);
+            if (key.isValid() && key.isReadable()) connection.read(key);
+        } catch (IOException e) {
+            log.debug("Closing binary connection {}: {}", connection.channel, e.getMessage());
+            close(key);
+        } catch (RuntimeException e) {
+            // a failing batch only costs its connection, the selector keeps serving the others
+            log.error("Closing binary connection {} after failure", connection.channel, e);
+            close(key);
+        }
+    }
+
+    private static void close(final SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            log.debug("Could not close channel", e);
+        }
+    }
+
+    /**
+     * Buffers of a connection, only touched by the selector thread
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(HEADER_SIZE + MAX_RECORDS * RECORD_SIZE);
+        // kept in fill mode between writes
+        private final ByteBuffer acks = ByteBuffer.allocateDirect(PENDING_ACKS * ACK_SIZE);
+        private final long[] timestamps = new long[MAX_RECORDS];
+        private final long[] amounts = new long[MAX_RECORDS];
+
+        private Connection(final SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void read(final SelectionKey key) throws IOException {
+            if (channel.read(in) < 0) throw new IOException("closed by peer");
+            process(key);
+        }
+
+        /**
+         * Applies every complete batch while acks can be written, reads pause while acks are pending
+         */
+        private void process(final SelectionKey key) throws IOException {
+            in.flip();
+            try {
+                while (true) {
+                    while (acks.remaining() >= ACK_SIZE && isBatchComplete()) {
+                        apply();
+                    }
+                    if (!flush(key) || !isBatchComplete()) return;
+                }
+            } finally {
+                in.compact();
+            }
+        }
+
+        private boolean isBatchComplete() throws IOException {
+            if (in.remaining() < HEADER_SIZE) return false;
+            int count = in.getInt(in.position());
+            if (count < 1 || count > MAX_RECORDS) throw new IOException("invalid record count " + count);
+            return in.remaining() >= HEADER_SIZE + count * RECORD_SIZE;
+        }
+
+        private void apply() {
+            int count = in.getInt();
+            long now = clock.millis();
+            int accepted = 0;
+            int tooOld = 0;
+            for (int i = 0; i < count; i++) {
+                long timestamp = in.getLong();
+                long amount = in.getLong();
+                RejectionReason rejection = transactionClassifier.classify(timestamp, amount, now);
+                if (rejection == null) {
+                    timestamps[accepted] = timestamp;
+                    amounts[accepted] = amount;
+                    accepted++;
+                } else {
+                    transactionMetrics.rejected(rejection);
+                    if (rejection == TOO_OLD) tooOld++;
+                }
+            }
+            if (accepted > 0) statisticsService.addAll(timestamps, amounts, accepted, now);
+            acks.putInt(accepted).putInt(tooOld).putInt(count - accepted - tooOld);
+        }
+
+        // true if every ack was written, otherwise waits for the socket to drain
+        private boolean flush(final SelectionKey key) throws IOException {
+            if (acks.position() > 0) {
+                acks.flip();
+                channel.write(acks);
+                acks.compact();
+            }
+            boolean flushed = acks.position() == 0;
+            key.interestOps(flushed ? OP_READ : OP_WRITE);
+            return flushed;
+        }
+    }
+}
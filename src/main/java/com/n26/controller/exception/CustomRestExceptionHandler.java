@@ -1,73 +1,58 @@
 package com.n26.controller.exception;
 
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.n26.metrics.TransactionMetrics;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
-import org.springframework.validation.FieldError;
-import org.springframework.validation.ObjectError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import static com.n26.metrics.TransactionMetrics.RejectionReason.MALFORMED;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.UNPARSABLE;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
 import static org.springframework.core.Ordered.HIGHEST_PRECEDENCE;
-import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 
 @Order(HIGHEST_PRECEDENCE)
 @ControllerAdvice
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = SERVLET)
 public class CustomRestExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private final TransactionMetrics transactionMetrics;
+
     @Override
     protected ResponseEntity<Object> handleHttpMessageNotReadable(final HttpMessageNotReadableException ex,
                                                                   final HttpHeaders headers,
                                                                   final HttpStatus status,
                                                                   final WebRequest request) {
         if (!(ex.getCause() instanceof JsonMappingException)) {
+            transactionMetrics.rejected(MALFORMED);
             return super.handleHttpMessageNotReadable(ex, headers, status, request);
         }
 
         String message = ex.getCause().getLocalizedMessage();
         if (!message.contains("BigDecimal") && !message.contains("ZonedDateTime")) {
+            transactionMetrics.rejected(MALFORMED);
             return super.handleHttpMessageNotReadable(ex, headers, status, request);
         }
 
+        transactionMetrics.rejected(UNPARSABLE);
         ApiError apiError = new ApiError(UNPROCESSABLE_ENTITY, "", message);
         return handleExceptionInternal(ex, apiError, headers, apiError.getHttpStatus(), request);
     }
 
-    @Override
-    protected ResponseEntity<Object> handleMethodArgumentNotValid(final MethodArgumentNotValidException ex,
-                                                                  final HttpHeaders headers,
-                                                                  HttpStatus status,
-                                                                  final WebRequest request) {
-        List<String> errors = new ArrayList<>();
-        for (FieldError error : ex.getBindingResult().getFieldErrors()) {
-            String message = error.getDefaultMessage();
-            errors.add(error.getField() + ": " + message);
-
-            if (message == null) continue;
-
-            // TODO: is there a better way to determine failed constraint?
-            if (message.contains("future") || message.contains("must be greater than or equal to 0.00")) {
-                status = UNPROCESSABLE_ENTITY;
-            } else if (message.contains("timed out")) {
-                status = NO_CONTENT;
-            }
-        }
-
-        for (ObjectError error : ex.getBindingResult().getGlobalErrors()) {
-            errors.add(error.getObjectName() + ": " + error.getDefaultMessage());
-        }
-
-        ApiError apiError = new ApiError(status, ex.getLocalizedMessage(), errors);
-        return handleExceptionInternal(ex, apiError, headers, apiError.getHttpStatus(), request);
+    @ExceptionHandler(UnknownWindowException.class)
+    public ResponseEntity<Object> handleUnknownWindow(final UnknownWindowException ex, final WebRequest request) {
+        ApiError apiError = new ApiError(BAD_REQUEST, ex.getLocalizedMessage(), "window: " + ex.getWindow());
+        return handleExceptionInternal(ex, apiError, new HttpHeaders(), apiError.getHttpStatus(), request);
     }
-
 }
@@ -0,0 +1,20 @@
+package com.n26.controller.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Requested statistics window is either not a duration or not one of the served windows
+ */
+@Getter
+public class UnknownWindowException extends RuntimeException {
+
+    private final String window;
+
+    public UnknownWindowException(final String window, final Set<Duration> windows) {
+        super("Window " + window + " is not served, available windows are " + windows);
+        this.window = window;
+    }
+}
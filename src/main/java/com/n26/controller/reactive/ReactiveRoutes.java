@@ -0,0 +1,46 @@
+package com.n26.controller.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static com.n26.controller.TransactionsController.NDJSON_VALUE;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.valueOf;
+import static org.springframework.web.reactive.function.server.RequestPredicates.DELETE;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Endpoints of the {@code reactive} profile served by Netty, same contract as the Spring MVC controllers
+ */
+@Configuration
+@ConditionalOnWebApplication(type = REACTIVE)
+public class ReactiveRoutes {
+
+    /**
+     * Tomcat is on the classpath for the servlet stack and would be preferred otherwise
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> routes(final TransactionsHandler transactionsHandler,
+                                                 final StatisticsHandler statisticsHandler) {
+        return route(POST("/transactions/batch").and(contentType(APPLICATION_JSON, valueOf(NDJSON_VALUE))),
+                transactionsHandler::postTransactions)
+                .andRoute(POST("/transactions"), transactionsHandler::postTransaction)
+                .andRoute(DELETE("/transactions"), transactionsHandler::deleteTransactions)
+                .andRoute(GET("/statistics"), statisticsHandler::getStatistics)
+                .andRoute(GET("/statistics/stream"), statisticsHandler::streamStatistics)
+                .andRoute(GET("/statistics/keys/{key}"), statisticsHandler::getKeyStatistics);
+    }
+}
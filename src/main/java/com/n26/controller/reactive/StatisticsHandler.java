@@ -0,0 +1,75 @@
+package com.n26.controller.reactive;
+
+import com.n26.controller.StatisticsSnapshotCache;
+import com.n26.controller.StatisticsStream;
+import com.n26.controller.StatisticsWindows;
+import com.n26.controller.exception.ApiError;
+import com.n26.controller.exception.UnknownWindowException;
+import com.n26.service.StatisticsService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
+
+/**
+ * Reads only touch memory, so they are answered on the event loop
+ */
+@Component
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = REACTIVE)
+public class StatisticsHandler {
+
+    private final StatisticsService statisticsService;
+    private final StatisticsSnapshotCache statisticsSnapshotCache;
+    private final StatisticsWindows statisticsWindows;
+    private final StatisticsStream statisticsStream;
+
+    public Mono<ServerResponse> getStatistics(final ServerRequest request) {
+        Duration window;
+        try {
+            window = statisticsWindows.resolve(request.queryParam("window").orElse(null));
+        } catch (UnknownWindowException e) {
+            return unknownWindow(e);
+        }
+        return ServerResponse.ok().contentType(APPLICATION_JSON_UTF8).syncBody(statisticsSnapshotCache.getJson(window));
+    }
+
+    /**
+     * Frames are already encoded events, each one is written as is and flushed
+     */
+    public Mono<ServerResponse> streamStatistics(final ServerRequest request) {
+        Duration window;
+        try {
+            window = statisticsWindows.resolve(request.queryParam("window").orElse(null));
+        } catch (UnknownWindowException e) {
+            return unknownWindow(e);
+        }
+        Flux<byte[]> frames = statisticsStream.getFrames(window);
+        BodyInserter<Flux<byte[]>, ReactiveHttpOutputMessage> inserter = (message, context) ->
+                message.writeAndFlushWith(frames.map(frame -> Mono.just(message.bufferFactory().wrap(frame))));
+        return ServerResponse.ok().contentType(TEXT_EVENT_STREAM).body(inserter);
+    }
+
+    public Mono<ServerResponse> getKeyStatistics(final ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(APPLICATION_JSON_UTF8)
+                .syncBody(statisticsService.getStatistics(request.pathVariable("key")));
+    }
+
+    private static Mono<ServerResponse> unknownWindow(final UnknownWindowException e) {
+        ApiError apiError = new ApiError(BAD_REQUEST, e.getLocalizedMessage(), "window: " + e.getWindow());
+        return ServerResponse.status(BAD_REQUEST).contentType(APPLICATION_JSON_UTF8).syncBody(apiError);
+    }
+}
@@ -0,0 +1,151 @@
+package com.n26.controller.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.n26.config.CoarseClock;
+import com.n26.controller.IngestionLimiter;
+import com.n26.controller.TransactionBatchReader;
+import com.n26.controller.exception.ApiError;
+import com.n26.controller.validation.TransactionClassifier;
+import com.n26.domain.BatchResult;
+import com.n26.domain.Transaction;
+import com.n26.metrics.TransactionMetrics;
+import com.n26.metrics.TransactionMetrics.RejectionReason;
+import com.n26.service.StatisticsService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import static com.n26.metrics.TransactionMetrics.RejectionReason.MALFORMED;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.UNPARSABLE;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
+
+/**
+ * Functional counterpart of {@link com.n26.controller.TransactionsController} and its exception handler.
+ * A transaction is decoded and classified on the event loop. Storing it may block, the SINGLE_WRITER engine
+ * parks publishers while its ring is full and the journal writes to disk, so storing, parsing a batch and wiping,
+ * which waits for the writer and deletes journal files, run on the elastic scheduler instead.
+ * Admission control can not wait on the event loop, requests beyond the concurrency are refused right away.
+ */
+@Component
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = REACTIVE)
+public class TransactionsHandler {
+
+    private static final DefaultDataBufferFactory EMPTY_BODY = new DefaultDataBufferFactory();
+
+    private final StatisticsService statisticsService;
+    private final TransactionBatchReader transactionBatchReader;
+    private final TransactionMetrics transactionMetrics;
+    private final TransactionClassifier transactionClassifier;
+    private final IngestionLimiter ingestionLimiter;
+    private final CoarseClock clock;
+
+    /**
+     * 201 – in case of success
+     * 204 – if the transaction is older than the window
+     * 400 – if the JSON is invalid
+     * 422 – if any of the fields are not parsable, the transaction date is in the future or the amount is negative
+     * 503 – if ingestion is at capacity
+     */
+    public Mono<ServerResponse> postTransaction(final ServerRequest request) {
+        if (!ingestionLimiter.tryAcquire()) return refuse();
+
+        return request.bodyToMono(Transaction.class)
+                .flatMap(this::store)
+                .switchIfEmpty(Mono.defer(() -> reject(MALFORMED, BAD_REQUEST, "Request body is missing")))
+                .onErrorResume(DecodingException.class, this::rejectUndecodable)
+                .doFinally(signal -> ingestionLimiter.release());
+    }
+
+    /**
+     * The body is collected before it is parsed, unlike the servlet endpoint it is not streamed
+     */
+    public Mono<ServerResponse> postTransactions(final ServerRequest request) {
+        if (!ingestionLimiter.tryAcquire()) return refuse();
+
+        return DataBufferUtils.join(request.body(BodyExtractors.toDataBuffers()))
+                .defaultIfEmpty(EMPTY_BODY.allocateBuffer(0))
+                .flatMap(body -> Mono.fromCallable(() -> read(body)).subscribeOn(Schedulers.elastic()))
+                .flatMap(result -> ServerResponse.ok().contentType(APPLICATION_JSON_UTF8).syncBody(result))
+                .onErrorResume(JsonProcessingException.class, this::rejectMalformedBatch)
+                .doFinally(signal -> ingestionLimiter.release());
+    }
+
+    public Mono<ServerResponse> deleteTransactions(final ServerRequest request) {
+        return Mono.fromRunnable(statisticsService::wipeStatistics)
+                .subscribeOn(Schedulers.elastic())
+                .then(ServerResponse.status(NO_CONTENT).build());
+    }
+
+    private BatchResult read(final DataBuffer body) throws java.io.IOException {
+        return transactionBatchReader.read(body.asInputStream(true), statisticsService::addAll);
+    }
+
+    private Mono<ServerResponse> store(final Transaction transaction) {
+        long now = clock.millis();
+        RejectionReason rejection = transactionClassifier.classify(transaction, now);
+        if (rejection == null) {
+            return Mono.fromRunnable(() -> statisticsService.add(transaction, now))
+                    .subscribeOn(Schedulers.elastic())
+                    .then(ServerResponse.status(CREATED).build());
+        }
+
+        transactionMetrics.rejected(rejection);
+        ApiError apiError = TransactionClassifier.error(rejection);
+        HttpStatus status = apiError.getHttpStatus();
+        if (status == NO_CONTENT) return ServerResponse.status(NO_CONTENT).build();
+        return ServerResponse.status(status).contentType(APPLICATION_JSON_UTF8).syncBody(apiError);
+    }
+
+    // same distinction as the servlet exception handler, unparsable fields are 422, broken JSON is 400
+    private Mono<ServerResponse> rejectUndecodable(final DecodingException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof JsonMappingException) {
+            String message = cause.getLocalizedMessage();
+            if (message.contains("BigDecimal") || message.contains("ZonedDateTime")) {
+                return reject(UNPARSABLE, UNPROCESSABLE_ENTITY, message);
+            }
+        }
+        return reject(MALFORMED, BAD_REQUEST, e.getLocalizedMessage());
+    }
+
+    private Mono<ServerResponse> rejectMalformedBatch(final JsonProcessingException e) {
+        transactionMetrics.rejected(MALFORMED);
+        return ServerResponse.status(BAD_REQUEST)
+                .contentType(APPLICATION_JSON_UTF8)
+                .syncBody(TransactionBatchReader.malformed(e));
+    }
+
+    private Mono<ServerResponse> refuse() {
+        return ServerResponse.status(SERVICE_UNAVAILABLE)
+                .header(RETRY_AFTER, Long.toString(ingestionLimiter.getRetryAfterSeconds()))
+                .contentType(APPLICATION_JSON_UTF8)
+                .syncBody(ingestionLimiter.error());
+    }
+
+    private Mono<ServerResponse> reject(final RejectionReason reason,
+                                        final HttpStatus status,
+                                        final String error) {
+        transactionMetrics.rejected(reason);
+        ApiError apiError = new ApiError(status, "", error);
+        return ServerResponse.status(status).contentType(APPLICATION_JSON_UTF8).syncBody(apiError);
+    }
+}
@@ -1,25 +1,28 @@
 package com.n26.controller.validation;
 
-import javax.validation.ConstraintValidator;
-import javax.validation.ConstraintValidatorContext;
-import java.time.OffsetDateTime;
+import com.n26.config.StatisticsProperties;
+
 import java.time.ZonedDateTime;
 
-import static java.time.ZoneOffset.UTC;
-import static java.time.temporal.ChronoUnit.MILLIS;
+/**
+ * Timestamp rule of {@link TransactionClassifier}: not later than the clock reading plus the configured future skew
+ */
+final class FutureTimestampValidator {
+
+    private final long futureSkew;
 
-public class FutureTimestampValidator implements ConstraintValidator<FutureTimestampConstraint, ZonedDateTime> {
-    @Override
-    public void initialize(final FutureTimestampConstraint constraintAnnotation) {
+    FutureTimestampValidator(final StatisticsProperties properties) {
+        this.futureSkew = properties.getFutureSkew().toMillis();
     }
 
     /**
-     * Validate with accuracy up to millis
+     * Validate with accuracy up to millis against a reading of the clock, tolerating the configured skew
      */
-    @Override
-    public boolean isValid(final ZonedDateTime timestampField, final ConstraintValidatorContext context) {
-        ZonedDateTime currentZonedDateTime = OffsetDateTime.now(UTC).toZonedDateTime();
-        long diff = MILLIS.between(timestampField, currentZonedDateTime);
-        return diff >= 0;
+    boolean isValid(final ZonedDateTime timestampField, final long now) {
+        return isValid(timestampField.toInstant().toEpochMilli(), now);
+    }
+
+    boolean isValid(final long epochMilli, final long now) {
+        return epochMilli <= now + futureSkew;
     }
 }
@@ -1,29 +1,31 @@
 package com.n26.controller.validation;
 
-import javax.validation.ConstraintValidator;
-import javax.validation.ConstraintValidatorContext;
-import java.time.OffsetDateTime;
-import java.time.ZonedDateTime;
+import com.n26.config.StatisticsProperties;
 
-import static java.time.ZoneOffset.UTC;
-import static java.time.temporal.ChronoUnit.MILLIS;
-import static java.util.concurrent.TimeUnit.MINUTES;
+import java.time.ZonedDateTime;
 
-public class TimeoutTimestampValidator implements ConstraintValidator<TimeoutTimestampConstraint, ZonedDateTime> {
+/**
+ * Timestamp rule of {@link TransactionClassifier}: younger than the window.
+ * A non-zero allowed lateness shorter than the window takes its place.
+ */
+final class TimeoutTimestampValidator {
 
-    private static final long TIME_CONSTRAINT = MINUTES.toMillis(1L);
+    private final long timeConstraint;
 
-    @Override
-    public void initialize(final TimeoutTimestampConstraint constraintAnnotation) {
+    TimeoutTimestampValidator(final StatisticsProperties properties) {
+        long window = properties.getWindow().toMillis();
+        long lateness = properties.getAllowedLateness().toMillis();
+        this.timeConstraint = lateness > 0 ? Math.min(window, lateness) : window;
     }
 
     /**
-     * Validate with accuracy up to millis
+     * Validate with accuracy up to millis against a reading of the clock
      */
-    @Override
-    public boolean isValid(final ZonedDateTime timestampField, final ConstraintValidatorContext context) {
-        ZonedDateTime currentZonedDateTime = OffsetDateTime.now(UTC).toZonedDateTime();
-        long diff = MILLIS.between(timestampField, currentZonedDateTime);
-        return diff < TIME_CONSTRAINT;
+    boolean isValid(final ZonedDateTime timestampField, final long now) {
+        return isValid(timestampField.toInstant().toEpochMilli(), now);
+    }
+
+    boolean isValid(final long epochMilli, final long now) {
+        return now - epochMilli < timeConstraint;
     }
 }
@@ -0,0 +1,90 @@
+package com.n26.controller.validation;
+
+import com.n26.config.StatisticsProperties;
+import com.n26.controller.exception.ApiError;
+import com.n26.domain.Transaction;
+import com.n26.metrics.TransactionMetrics.RejectionReason;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static com.n26.domain.Transaction.MAX_KEY_LENGTH;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.FUTURE;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.MALFORMED;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.NEGATIVE;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.TOO_OLD;
+import static com.n26.metrics.TransactionMetrics.RejectionReason.UNPARSABLE;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+
+/**
+ * Checks the constraints of {@link Transaction} in a single pass, the first failing one decides.
+ * Unlike bean validation nothing is thrown and no violations are collected, a rejection costs no more
+ * than an acceptance, and the reason maps directly to the response.
+ */
+@Component
+public class TransactionClassifier {
+
+    private static final Map<RejectionReason, ApiError> ERRORS = new EnumMap<>(RejectionReason.class);
+
+    static {
+        ERRORS.put(MALFORMED, new ApiError(BAD_REQUEST, "Validation failed",
+                "amount and timestamp are required, key is limited to " + MAX_KEY_LENGTH + " characters"));
+        ERRORS.put(UNPARSABLE, new ApiError(UNPROCESSABLE_ENTITY, "Validation failed", "fields are not parsable"));
+        ERRORS.put(NEGATIVE, new ApiError(UNPROCESSABLE_ENTITY, "Validation failed",
+                "amount: must be greater than or equal to 0.00"));
+        ERRORS.put(FUTURE, new ApiError(UNPROCESSABLE_ENTITY, "Validation failed",
+                "timestamp: Timestamp field contains future time"));
+        ERRORS.put(TOO_OLD, new ApiError(NO_CONTENT, "Validation failed", "timestamp: Transaction is timed out"));
+    }
+
+    private final FutureTimestampValidator futureTimestampValidator;
+    private final TimeoutTimestampValidator timeoutTimestampValidator;
+
+    public TransactionClassifier() {
+        this(new StatisticsProperties());
+    }
+
+    @Autowired
+    public TransactionClassifier(final StatisticsProperties properties) {
+        this.futureTimestampValidator = new FutureTimestampValidator(properties);
+        this.timeoutTimestampValidator = new TimeoutTimestampValidator(properties);
+    }
+
+    /**
+     * @param now reading of the clock the transaction is stored with, in epoch millis
+     * @return reason to reject the transaction, {@code null} if it is to be stored
+     */
+    public RejectionReason classify(final Transaction transaction, final long now) {
+        if (transaction.getAmount() == null || transaction.getTimestamp() == null) return MALFORMED;
+        if (transaction.getAmount().signum() < 0) return NEGATIVE;
+        if (!futureTimestampValidator.isValid(transaction.getTimestamp(), now)) return FUTURE;
+        if (!timeoutTimestampValidator.isValid(transaction.getTimestamp(), now)) return TOO_OLD;
+        if (transaction.getKey() != null && transaction.getKey().length() > MAX_KEY_LENGTH) return MALFORMED;
+        return null;
+    }
+
+    /**
+     * Same rules for a transaction given as epoch millis and amount in micro-units, which can not be malformed
+     *
+     * @return reason to reject the transaction, {@code null} if it is to be stored
+     */
+    public RejectionReason classify(final long timestamp, final long amountMicros, final long now) {
+        if (amountMicros < 0) return NEGATIVE;
+        if (!futureTimestampValidator.isValid(timestamp, now)) return FUTURE;
+        if (!timeoutTimestampValidator.isValid(timestamp, now)) return TOO_OLD;
+        return null;
+    }
+
+    /**
+     * 204 for transactions older than the window or the allowed lateness, 422 for unparsable fields, future or negative transactions,
+     * 400 otherwise
+     */
+    public static ApiError error(final RejectionReason reason) {
+        return ERRORS.get(reason);
+    }
+}
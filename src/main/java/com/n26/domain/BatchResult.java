@@ -0,0 +1,57 @@
+package com.n26.domain;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts of a batch by status. Accepted items are only counted, so the result of a valid batch has a fixed size
+ * however many items it holds; rejected items are listed by their zero-based position in the batch.
+ */
+@Getter
+@ToString
+public class BatchResult {
+
+    private long accepted;
+    private long tooOld;
+    private long invalid;
+    private final List<Long> tooOldItems = new ArrayList<>();
+    private final List<Long> invalidItems = new ArrayList<>();
+
+    /**
+     * @param status of the item following the ones added so far
+     */
+    public void add(final ItemStatus status) {
+        long item = accepted + tooOld + invalid;
+        switch (status) {
+            case ACCEPTED:
+                accepted++;
+                break;
+            case TOO_OLD:
+                tooOld++;
+                tooOldItems.add(item);
+                break;
+            case INVALID:
+                invalid++;
+                invalidItems.add(item);
+                break;
+        }
+    }
+
+    public enum ItemStatus {
+        /**
+         * Stored, 201 for a single transaction
+         */
+        ACCEPTED,
+        /**
+         * Older than 60 seconds, 204 for a single transaction
+         */
+        TOO_OLD,
+        /**
+         * Not parsable, negative or in the future, 422 for a single transaction
+         */
+        INVALID
+    }
+}
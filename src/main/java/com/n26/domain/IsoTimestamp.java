@@ -0,0 +1,111 @@
+package com.n26.domain;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.datatype.jsr310.DecimalUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+
+import static com.fasterxml.jackson.core.JsonParser.NumberType.BIG_INTEGER;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NUMBER_INT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_STRING;
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Parses ISO-8601 timestamps. The {@code yyyy-MM-ddTHH:mm:ss.SSSZ} format clients send is read digit by digit,
+ * without the field maps and resolving of {@link java.time.format.DateTimeFormatter},
+ * any other format falls back to {@link ZonedDateTime#parse(CharSequence)}.
+ * Timestamps are returned in UTC, like Jackson adjusts them to its default time zone.
+ * Single transactions and batches both read their timestamps through {@link #read(JsonParser)}.
+ */
+public final class IsoTimestamp {
+
+    private static final int FIXED_LENGTH = 24;
+
+    private IsoTimestamp() {
+    }
+
+    /**
+     * Reads the current token as ISO-8601 text, epoch millis or decimal epoch seconds,
+     * the forms the generic deserializer accepts. Text is trimmed like the generic deserializer does.
+     *
+     * @return timestamp or {@code null} if the token is blank text or neither text nor a number
+     * @throws DateTimeParseException if the text is not an ISO-8601 zoned date-time or the number is out of range
+     */
+    public static ZonedDateTime read(final JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == VALUE_STRING) {
+            char[] chars = parser.getTextCharacters();
+            int start = parser.getTextOffset();
+            int end = start + parser.getTextLength();
+            while (start < end && Character.isWhitespace(chars[start])) start++;
+            while (end > start && Character.isWhitespace(chars[end - 1])) end--;
+            return start == end ? null : parse(chars, start, end - start);
+        }
+        if (token == null || !token.isNumeric()) return null;
+
+        try {
+            if (token == VALUE_NUMBER_INT) {
+                if (parser.getNumberType() == BIG_INTEGER) throw new DateTimeException("Epoch millis out of range");
+                return Instant.ofEpochMilli(parser.getLongValue()).atZone(UTC);
+            }
+            BigDecimal value = parser.getDecimalValue();
+            long seconds = value.longValue();
+            return Instant.ofEpochSecond(seconds, DecimalUtils.extractNanosecondDecimal(value, seconds)).atZone(UTC);
+        } catch (DateTimeException e) {
+            throw new DateTimeParseException(e.getMessage(), parser.getText(), 0, e);
+        }
+    }
+
+    /**
+     * @throws DateTimeParseException if the text is not an ISO-8601 zoned date-time
+     */
+    public static ZonedDateTime parse(final char[] chars, final int offset, final int length) {
+        if (length == FIXED_LENGTH) {
+            ZonedDateTime parsed = parseFixed(chars, offset);
+            if (parsed != null) return parsed;
+        }
+        return ZonedDateTime.parse(new String(chars, offset, length)).withZoneSameInstant(UTC);
+    }
+
+    /**
+     * @return timestamp or {@code null} if the text is not in the fixed format
+     */
+    private static ZonedDateTime parseFixed(final char[] c, final int o) {
+        if (c[o + 4] != '-' || c[o + 7] != '-' || c[o + 10] != 'T' || c[o + 13] != ':' || c[o + 16] != ':'
+                || c[o + 19] != '.' || c[o + 23] != 'Z') {
+            return null;
+        }
+        int year = digits(c, o, 4);
+        int month = digits(c, o + 5, 2);
+        int day = digits(c, o + 8, 2);
+        int hour = digits(c, o + 11, 2);
+        int minute = digits(c, o + 14, 2);
+        int second = digits(c, o + 17, 2);
+        int millis = digits(c, o + 20, 3);
+        if ((year | month | day | hour | minute | second | millis) < 0) return null;
+
+        try {
+            return ZonedDateTime.of(year, month, day, hour, minute, second, millis * 1_000_000, UTC);
+        } catch (DateTimeException e) {
+            // e.g. February 30th, reported by the general parser
+            return null;
+        }
+    }
+
+    // negative if any of the characters is not a digit
+    private static int digits(final char[] c, final int offset, final int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = c[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
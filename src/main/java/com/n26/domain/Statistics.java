@@ -1,6 +1,7 @@
 package com.n26.domain;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -9,6 +10,7 @@ import lombok.ToString;
 import java.math.BigDecimal;
 
 import static com.fasterxml.jackson.annotation.JsonFormat.Shape.STRING;
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
 import static com.n26.controller.StatisticsController.VIEW_SCALE;
 import static com.n26.repository.StatisticsRepository.DEFAULT_ROUNDING;
 
@@ -31,11 +33,37 @@ public class Statistics {
 
     private final long count;
 
+    /**
+     * Percentiles are estimates and only present when enabled and the window is not empty
+     */
+    @JsonInclude(NON_NULL)
+    @JsonFormat(shape = STRING)
+    private final BigDecimal p50;
+
+    @JsonInclude(NON_NULL)
+    @JsonFormat(shape = STRING)
+    private final BigDecimal p90;
+
+    @JsonInclude(NON_NULL)
+    @JsonFormat(shape = STRING)
+    private final BigDecimal p99;
+
+    public Statistics(BigDecimal sum, BigDecimal avg, BigDecimal max, BigDecimal min, long count) {
+        this(sum, avg, max, min, count, null, null, null);
+    }
+
     public Statistics(Statistics that) {
+        this(that, that.getP50(), that.getP90(), that.getP99());
+    }
+
+    public Statistics(Statistics that, BigDecimal p50, BigDecimal p90, BigDecimal p99) {
         this.sum = that.getSum().setScale(VIEW_SCALE, DEFAULT_ROUNDING);
         this.avg = that.getAvg().setScale(VIEW_SCALE, DEFAULT_ROUNDING);
         this.max = that.getMax().setScale(VIEW_SCALE, DEFAULT_ROUNDING);
         this.min = that.getMin().setScale(VIEW_SCALE, DEFAULT_ROUNDING);
         this.count = that.getCount();
+        this.p50 = p50 == null ? null : p50.setScale(VIEW_SCALE, DEFAULT_ROUNDING);
+        this.p90 = p90 == null ? null : p90.setScale(VIEW_SCALE, DEFAULT_ROUNDING);
+        this.p99 = p99 == null ? null : p99.setScale(VIEW_SCALE, DEFAULT_ROUNDING);
     }
 }
@@ -1,24 +1,35 @@
 package com.n26.domain;
 
-import com.n26.controller.validation.FutureTimestampConstraint;
-import com.n26.controller.validation.TimeoutTimestampConstraint;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import javax.validation.constraints.DecimalMin;
 import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 
+/**
+ * Checked by {@link com.n26.controller.validation.TransactionClassifier} on every ingestion path, it carries no
+ * bean validation constraints of its own.
+ */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonDeserialize(using = TransactionDeserializer.class)
 public class Transaction {
 
-    @DecimalMin("0.00")
+    public static final int MAX_KEY_LENGTH = 64;
+
     private BigDecimal amount;
 
-    @FutureTimestampConstraint
-    @TimeoutTimestampConstraint
     private ZonedDateTime timestamp;
+
+    /**
+     * Optional, e.g. a merchant id, statistics are additionally kept per key
+     */
+    private String key;
+
+    public Transaction(final BigDecimal amount, final ZonedDateTime timestamp) {
+        this(amount, timestamp, null);
+    }
 }
@@ -0,0 +1,106 @@
+package com.n26.domain;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+
+import static com.fasterxml.jackson.core.JsonToken.END_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NULL;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_STRING;
+
+/**
+ * Reads a {@link Transaction} field by field instead of through bean introspection. Amounts are built from the
+ * parser's character buffer and timestamps go through {@link IsoTimestamp}, so no intermediate strings are created.
+ *
+ * Failures are reported like the generic deserializers do: an unparsable amount or timestamp names
+ * {@code BigDecimal} or {@code ZonedDateTime} in its message, which the exception handlers answer with 422,
+ * anything else is a 400.
+ */
+public class TransactionDeserializer extends StdDeserializer<Transaction> {
+
+    public TransactionDeserializer() {
+        super(Transaction.class);
+    }
+
+    @Override
+    public Transaction deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == START_OBJECT) {
+            token = parser.nextToken();
+        } else if (token != FIELD_NAME && token != END_OBJECT) {
+            return (Transaction) context.handleUnexpectedToken(Transaction.class, parser);
+        }
+
+        Transaction transaction = new Transaction();
+        for (; token == FIELD_NAME; token = parser.nextToken()) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "amount":
+                    transaction.setAmount(readAmount(parser, context));
+                    break;
+                case "timestamp":
+                    transaction.setTimestamp(readTimestamp(parser, context));
+                    break;
+                case "key":
+                    transaction.setKey(readKey(parser, context));
+                    break;
+                default:
+                    handleUnknownProperty(parser, context, transaction, field);
+            }
+        }
+        return transaction;
+    }
+
+    private static BigDecimal readAmount(final JsonParser parser, final DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == VALUE_STRING) {
+            char[] chars = parser.getTextCharacters();
+            int start = parser.getTextOffset();
+            int end = start + parser.getTextLength();
+            while (start < end && Character.isWhitespace(chars[start])) start++;
+            while (end > start && Character.isWhitespace(chars[end - 1])) end--;
+            if (start == end) return null;
+            try {
+                return new BigDecimal(chars, start, end - start);
+            } catch (NumberFormatException e) {
+                return (BigDecimal) context.handleWeirdStringValue(BigDecimal.class, parser.getText(),
+                        "not a valid representation");
+            }
+        }
+        if (token.isNumeric()) return parser.getDecimalValue();
+        if (token == VALUE_NULL) return null;
+        return (BigDecimal) context.handleUnexpectedToken(BigDecimal.class, parser);
+    }
+
+    private static ZonedDateTime readTimestamp(final JsonParser parser, final DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        // blank text reads as null, like a missing field
+        if (token == VALUE_STRING || token.isNumeric()) {
+            try {
+                return IsoTimestamp.read(parser);
+            } catch (DateTimeParseException e) {
+                return (ZonedDateTime) context.handleWeirdStringValue(ZonedDateTime.class, parser.getText(),
+                        e.getMessage());
+            }
+        }
+        if (token == VALUE_NULL) return null;
+        return (ZonedDateTime) context.handleUnexpectedToken(ZonedDateTime.class, parser);
+    }
+
+    private static String readKey(final JsonParser parser, final DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == VALUE_NULL) return null;
+        // scalars are taken as text like the generic deserializer does
+        if (token.isScalarValue()) return parser.getText();
+        return (String) context.handleUnexpectedToken(String.class, parser);
+    }
+}
@@ -0,0 +1,40 @@
+package com.n26.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counters of rejected transactions, shared by the single and the batch ingestion path.
+ */
+@Component
+public class TransactionMetrics {
+
+    private final Map<RejectionReason, Counter> rejections = new EnumMap<>(RejectionReason.class);
+
+    public TransactionMetrics(final MeterRegistry registry) {
+        for (RejectionReason reason : RejectionReason.values()) {
+            rejections.put(reason, Counter.builder("transactions.rejected")
+                    .description("Transactions which were not stored")
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(registry));
+        }
+    }
+
+    public void rejected(final RejectionReason reason) {
+        rejections.get(reason).increment();
+    }
+
+    public enum RejectionReason {
+        TOO_OLD,
+        FUTURE,
+        NEGATIVE,
+        UNPARSABLE,
+        MALFORMED,
+        // a whole request refused by admission control, a batch counts once
+        OVERLOADED
+    }
+}
@@ -0,0 +1,90 @@
+package com.n26.repository;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Fixed size, mergeable histogram of amounts with logarithmic buckets.
+ * A quantile is reported as the representative of its bucket, which is within {@link #RELATIVE_ACCURACY}
+ * of every amount counted in that bucket. Amounts below {@link #MIN_AMOUNT} share the lowest bucket,
+ * amounts above {@link #MAX_AMOUNT} the highest one, callers clamp quantiles to the exact extremes.
+ *
+ * Not thread safe, callers have to guard it.
+ */
+final class AmountSketch {
+
+    static final double RELATIVE_ACCURACY = 0.01;
+    static final double MIN_AMOUNT = 0.01;
+    static final double MAX_AMOUNT = 1e12;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int BUCKETS = (int) Math.ceil(Math.log(MAX_AMOUNT / MIN_AMOUNT) / LOG_GAMMA) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    // non-empty buckets are within [lowest, highest], merge and reset only touch that range
+    private int lowest = BUCKETS;
+    private int highest = -1;
+
+    void add(final BigDecimal amount) {
+        int index = index(amount.doubleValue());
+        counts[index]++;
+        count++;
+        if (index < lowest) lowest = index;
+        if (index > highest) highest = index;
+    }
+
+    void merge(final AmountSketch that) {
+        if (that.count == 0) return;
+
+        for (int i = that.lowest; i <= that.highest; i++) {
+            counts[i] += that.counts[i];
+        }
+        count += that.count;
+        if (that.lowest < lowest) lowest = that.lowest;
+        if (that.highest > highest) highest = that.highest;
+    }
+
+    void reset() {
+        if (count == 0) return;
+
+        Arrays.fill(counts, lowest, highest + 1, 0L);
+        count = 0;
+        lowest = BUCKETS;
+        highest = -1;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @param quantile within {@code [0, 1]}
+     * @return estimate of the amount at the quantile or {@code null} when empty
+     */
+    BigDecimal getQuantile(final double quantile) {
+        if (count == 0) return null;
+
+        long rank = (long) (quantile * (count - 1));
+        long seen = 0;
+        for (int i = lowest; i <= highest; i++) {
+            seen += counts[i];
+            if (seen > rank) return BigDecimal.valueOf(representative(i));
+        }
+        return BigDecimal.valueOf(representative(highest));
+    }
+
+    // bucket i covers (MIN_AMOUNT * GAMMA^(i-1), MIN_AMOUNT * GAMMA^i]
+    private static int index(final double amount) {
+        if (amount <= MIN_AMOUNT) return 0;
+        int index = (int) Math.ceil(Math.log(amount / MIN_AMOUNT) / LOG_GAMMA);
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    // the value with equal relative distance to both bucket bounds
+    private static double representative(final int index) {
+        if (index == 0) return MIN_AMOUNT;
+        return 2 * MIN_AMOUNT * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.n26.repository;
+
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BinaryOperator;
+
+import static java.math.BigDecimal.ZERO;
+
+/**
+ * Lock-free store of immutable {@link BigDecimal} slots, every write allocates a new slot.
+ */
+class BigDecimalSlotStore implements SlotStore {
+
+    private static final Slot EMPTY_SLOT = new Slot(Long.MIN_VALUE, 0, ZERO, ZERO, ZERO);
+
+    private static final BinaryOperator<Slot> MERGE = (prev, t) -> {
+        if (prev.epoch > t.epoch) return prev; // slot already reused, transaction is outdated
+        if (prev.epoch < t.epoch) return t;
+
+        return new Slot(prev.epoch,
+                prev.count + t.count,
+                prev.sum.add(t.sum),
+                prev.min.min(t.min),
+                prev.max.max(t.max));
+    };
+
+    private final AtomicReferenceArray<Slot> slots;
+
+    BigDecimalSlotStore(final int size) {
+        this.slots = new AtomicReferenceArray<>(size);
+        clear();
+    }
+
+    @Override
+    public void add(final int index, final long epoch, final BigDecimal amount) {
+        slots.accumulateAndGet(index, new Slot(epoch, 1, amount, amount, amount), MERGE);
+    }
+
+    @Override
+    public void merge(final int index, final long epoch, final FixedPointAccumulator batch) {
+        Slot slot = new Slot(epoch, batch.getCount(), batch.getSum(), batch.getMin(), batch.getMax());
+        slots.accumulateAndGet(index, slot, MERGE);
+    }
+
+    @Override
+    public void fold(final long fromEpoch, final long toEpoch, final FixedPointAccumulator into) {
+        // every epoch maps to a single slot, only the slots of the requested range are visited
+        for (long epoch = Math.max(fromEpoch, toEpoch - slots.length() + 1); epoch <= toEpoch; epoch++) {
+            Slot slot = slots.get((int) Math.floorMod(epoch, (long) slots.length()));
+            if (slot.count == 0 || slot.epoch != epoch) continue;
+
+            into.addExact(slot.count, slot.sum, slot.min, slot.max);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, EMPTY_SLOT);
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Slot {
+        private final long epoch;
+        private final long count;
+        private final BigDecimal sum;
+        private final BigDecimal min;
+        private final BigDecimal max;
+    }
+}
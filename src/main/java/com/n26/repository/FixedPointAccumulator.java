@@ -0,0 +1,177 @@
+package com.n26.repository;
+
+import com.n26.domain.Statistics;
+
+import java.math.BigDecimal;
+
+import static com.n26.repository.StatisticsRepository.CALC_SCALE;
+import static com.n26.repository.StatisticsRepository.DEFAULT_ROUNDING;
+import static com.n26.repository.StatisticsRepository.EMPTY_STATISTICS;
+
+/**
+ * Mutable count/sum/min/max aggregate keeping amounts as {@code long} micro-units.
+ * Amounts which do not fit into micro-units, and sums overflowing {@code long}, spill into
+ * {@link BigDecimal} fields, so the result is always exact. The average is only derived on read.
+ *
+ * Not thread safe, callers have to guard it. Slots of {@link FixedPointSlotStore} extend it to keep its fields
+ * inline with their own.
+ */
+class FixedPointAccumulator {
+
+    static final int MICRO_SCALE = 6;
+    static final long NOT_REPRESENTABLE = Long.MIN_VALUE;
+
+    // 18 digits always fit into long
+    private static final int MAX_MICRO_PRECISION = 18;
+
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    private BigDecimal exactSum;
+    private BigDecimal exactMin;
+    private BigDecimal exactMax;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_MICRO_PRECISION + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    /**
+     * Scales the unscaled value as a {@code long}, the unscaled value itself is read without a {@link java.math.BigInteger}
+     *
+     * @return amount in micro-units or {@link #NOT_REPRESENTABLE}
+     */
+    static long toMicros(final BigDecimal amount) {
+        int scale = amount.scale();
+        if (scale > MICRO_SCALE) return NOT_REPRESENTABLE;
+        if (amount.signum() == 0) return 0L;
+        // digits of the amount in micro-units, as long since a negative scale may be huge
+        if (amount.precision() + (long) MICRO_SCALE - scale > MAX_MICRO_PRECISION) return NOT_REPRESENTABLE;
+
+        // a zero scale reads the compact unscaled value directly, shifting the point right is one small object at most
+        long unscaled = scale == 0 ? amount.longValueExact() : amount.movePointRight(scale).longValueExact();
+        return unscaled * POWERS_OF_TEN[MICRO_SCALE - scale];
+    }
+
+    static BigDecimal fromMicros(final long micros) {
+        return BigDecimal.valueOf(micros, MICRO_SCALE);
+    }
+
+    void add(final BigDecimal amount) {
+        long micros = toMicros(amount);
+        if (micros == NOT_REPRESENTABLE) {
+            addExact(1, amount, amount, amount);
+        } else {
+            addMicros(1, micros, micros, micros);
+        }
+    }
+
+    void addMicros(final long count, final long sum, final long min, final long max) {
+        this.count += count;
+        addToSum(sum);
+        if (min < this.min) this.min = min;
+        if (max > this.max) this.max = max;
+    }
+
+    void addExact(final long count, final BigDecimal sum, final BigDecimal min, final BigDecimal max) {
+        this.count += count;
+        addToExactSum(sum);
+        exactMin = exactMin == null ? min : exactMin.min(min);
+        exactMax = exactMax == null ? max : exactMax.max(max);
+    }
+
+    void merge(final FixedPointAccumulator that) {
+        if (that.count == 0) return;
+
+        count += that.count;
+        addToSum(that.sum);
+        if (that.min < min) min = that.min;
+        if (that.max > max) max = that.max;
+        if (that.exactSum != null) addToExactSum(that.exactSum);
+        if (that.exactMin != null) exactMin = exactMin == null ? that.exactMin : exactMin.min(that.exactMin);
+        if (that.exactMax != null) exactMax = exactMax == null ? that.exactMax : exactMax.max(that.exactMax);
+    }
+
+    void reset() {
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+        exactSum = null;
+        exactMin = null;
+        exactMax = null;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @return whether every amount is held in micro-units, i.e. nothing spilled into {@link BigDecimal}
+     */
+    boolean isMicros() {
+        return exactSum == null && exactMin == null && exactMax == null;
+    }
+
+    long getMicroSum() {
+        return sum;
+    }
+
+    long getMicroMin() {
+        return min;
+    }
+
+    long getMicroMax() {
+        return max;
+    }
+
+    BigDecimal getSum() {
+        BigDecimal result = fromMicros(sum);
+        return exactSum == null ? result : result.add(exactSum);
+    }
+
+    BigDecimal getMin() {
+        if (!hasMicroExtremes()) return exactMin;
+        BigDecimal result = fromMicros(min);
+        return exactMin == null ? result : result.min(exactMin);
+    }
+
+    BigDecimal getMax() {
+        if (!hasMicroExtremes()) return exactMax;
+        BigDecimal result = fromMicros(max);
+        return exactMax == null ? result : result.max(exactMax);
+    }
+
+    Statistics toStatistics() {
+        if (count == 0) return EMPTY_STATISTICS;
+
+        BigDecimal total = getSum();
+        BigDecimal avg = total.divide(BigDecimal.valueOf(count), CALC_SCALE, DEFAULT_ROUNDING);
+        return new Statistics(new Statistics(total, avg, getMax(), getMin(), count));
+    }
+
+    private boolean hasMicroExtremes() {
+        return min <= max;
+    }
+
+    private void addToSum(final long micros) {
+        long result = sum + micros;
+        // overflow iff both operands have the same sign and the result has the opposite one
+        if (((sum ^ result) & (micros ^ result)) < 0) {
+            addToExactSum(fromMicros(sum));
+            sum = micros;
+        } else {
+            sum = result;
+        }
+    }
+
+    private void addToExactSum(final BigDecimal value) {
+        exactSum = exactSum == null ? value : exactSum.add(value);
+    }
+}
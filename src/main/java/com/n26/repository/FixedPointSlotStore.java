@@ -0,0 +1,74 @@
+package com.n26.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Store of mutable {@link FixedPointAccumulator} slots, each guarded by its own monitor.
+ * Writes of representable amounts do not allocate.
+ */
+class FixedPointSlotStore implements SlotStore {
+
+    private final Slot[] slots;
+
+    FixedPointSlotStore(final int size) {
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    @Override
+    public void add(final int index, final long epoch, final BigDecimal amount) {
+        Slot slot = slots[index];
+        synchronized (slot) {
+            if (slot.epoch > epoch) return; // slot already reused, transaction is outdated
+            if (slot.epoch < epoch) {
+                slot.epoch = epoch;
+                slot.reset();
+            }
+            slot.add(amount);
+        }
+    }
+
+    @Override
+    public void merge(final int index, final long epoch, final FixedPointAccumulator batch) {
+        Slot slot = slots[index];
+        synchronized (slot) {
+            if (slot.epoch > epoch) return;
+            if (slot.epoch < epoch) {
+                slot.epoch = epoch;
+                slot.reset();
+            }
+            slot.merge(batch);
+        }
+    }
+
+    @Override
+    public void fold(final long fromEpoch, final long toEpoch, final FixedPointAccumulator into) {
+        // every epoch maps to a single slot, only the slots of the requested range are visited
+        for (long epoch = Math.max(fromEpoch, toEpoch - slots.length + 1); epoch <= toEpoch; epoch++) {
+            Slot slot = slots[(int) Math.floorMod(epoch, (long) slots.length)];
+            synchronized (slot) {
+                if (slot.epoch == epoch) into.merge(slot);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Slot slot : slots) {
+            synchronized (slot) {
+                slot.epoch = Long.MIN_VALUE;
+                slot.reset();
+            }
+        }
+    }
+
+    // the accumulator fields are inherited, so header, accumulator and epoch of a slot are one object and
+    // the trailing padding keeps them off the cache line of the next slot's monitor, subclass fields are laid out last
+    @SuppressWarnings("unused")
+    private static final class Slot extends FixedPointAccumulator {
+        private long epoch = Long.MIN_VALUE;
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
@@ -0,0 +1,280 @@
+package com.n26.repository;
+
+import com.n26.domain.Statistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.n26.repository.FixedPointAccumulator.NOT_REPRESENTABLE;
+import static com.n26.repository.StatisticsRepository.EMPTY_STATISTICS;
+
+/**
+ * Statistics of the default window per transaction key, e.g. per merchant.
+ * Every key only keeps its non-empty buckets, packed into a single {@code long[]}. A key with one bucket costs
+ * about 130 bytes including the map entry but not the key string, 40 more for every further bucket.
+ *
+ * Keys whose window became empty are evicted by an incremental sweep piggybacking on inserts, so no
+ * cleanup thread is needed. When {@code maxKeys} are tracked, transactions of new keys are only counted globally.
+ * A new key reserves its place before its window is created, so concurrent inserts never track more keys.
+ */
+final class KeyedStatistics {
+
+    // on average every insert advances the sweep by SWEEP_STEPS / SWEEP_PERIOD keys
+    private static final int SWEEP_PERIOD = 16;
+    private static final int SWEEP_STEPS = 32;
+    // keys inspected before a new key is rejected because of maxKeys
+    private static final int SWEEP_STEPS_WHEN_FULL = 256;
+
+    private final long windowMillis;
+    private final long resolutionMillis;
+    private final long futureSkewMillis;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, KeyWindow> windows = new ConcurrentHashMap<>();
+    // places taken by tracked keys and by new keys about to be tracked, never above maxKeys
+    private final AtomicInteger reservedKeys = new AtomicInteger();
+    private final Counter rejectedKeys;
+
+    private final Lock sweepLock = new ReentrantLock();
+    // guarded by sweepLock, the iterator is weakly consistent and survives concurrent modification
+    private Iterator<Map.Entry<String, KeyWindow>> sweepCursor;
+
+    KeyedStatistics(final Duration window, final Duration resolution, final int maxKeys, final MeterRegistry registry) {
+        this(window, resolution, Duration.ZERO, maxKeys, registry);
+    }
+
+    /**
+     * @param futureSkew how far ahead of {@code now} a timestamp may be, its bucket counts once it is reached
+     */
+    KeyedStatistics(final Duration window, final Duration resolution, final Duration futureSkew,
+                    final int maxKeys, final MeterRegistry registry) {
+        this.windowMillis = window.toMillis();
+        this.futureSkewMillis = futureSkew.toMillis();
+        this.resolutionMillis = resolution.toMillis();
+        if (resolutionMillis <= 0 || windowMillis % resolutionMillis != 0) {
+            throw new IllegalArgumentException("Key resolution must divide " + window + ", got " + resolution);
+        }
+        this.maxKeys = maxKeys;
+        this.rejectedKeys = Counter.builder("statistics.keys.rejected")
+                .description("Keyed transactions not tracked per key because of the key limit")
+                .register(registry);
+        Gauge.builder("statistics.keys", windows, Map::size)
+                .description("Keys with own statistics")
+                .register(registry);
+    }
+
+    void insert(final String key, final long timestamp, final BigDecimal amount, final long now) {
+        long epoch = Math.floorDiv(timestamp, resolutionMillis);
+        long oldestEpoch = oldestLiveEpoch(now);
+        if (epoch < oldestEpoch || epoch > Math.floorDiv(now + futureSkewMillis, resolutionMillis)) return;
+
+        if (ThreadLocalRandom.current().nextInt(SWEEP_PERIOD) == 0) sweep(oldestEpoch, SWEEP_STEPS);
+
+        while (true) {
+            KeyWindow window = windows.get(key);
+            if (window == null) {
+                if (!reserveKey(oldestEpoch)) {
+                    rejectedKeys.increment();
+                    return;
+                }
+                KeyWindow created = new KeyWindow();
+                window = windows.putIfAbsent(key, created);
+                if (window == null) {
+                    window = created;
+                } else {
+                    // another insert created the key meanwhile, it holds its own place
+                    reservedKeys.decrementAndGet();
+                }
+            }
+            synchronized (window) {
+                // lost against eviction, the next round creates a new window
+                if (window.evicted) continue;
+                window.add(epoch, amount, oldestEpoch);
+                return;
+            }
+        }
+    }
+
+    Statistics getStatistics(final String key, final long now) {
+        KeyWindow window = windows.get(key);
+        if (window == null) return EMPTY_STATISTICS;
+
+        FixedPointAccumulator total = new FixedPointAccumulator();
+        synchronized (window) {
+            window.fold(oldestLiveEpoch(now), Math.floorDiv(now, resolutionMillis), total);
+        }
+        return total.toStatistics();
+    }
+
+    int size() {
+        return windows.size();
+    }
+
+    /**
+     * Evicts every key whose window is empty at {@code now}
+     */
+    void evictIdle(final long now) {
+        sweepLock.lock();
+        try {
+            sweepCursor = null;
+            sweep(oldestLiveEpoch(now), windows.size());
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    void clear() {
+        windows.forEach(this::evict);
+    }
+
+    private boolean reserveKey(final long oldestEpoch) {
+        if (reservedKeys.incrementAndGet() <= maxKeys) return true;
+        reservedKeys.decrementAndGet();
+
+        sweep(oldestEpoch, SWEEP_STEPS_WHEN_FULL);
+        if (reservedKeys.incrementAndGet() <= maxKeys) return true;
+        reservedKeys.decrementAndGet();
+        return false;
+    }
+
+    private void sweep(final long oldestEpoch, final int steps) {
+        if (!sweepLock.tryLock()) return;
+        try {
+            for (int i = 0; i < steps; i++) {
+                if (sweepCursor == null || !sweepCursor.hasNext()) {
+                    sweepCursor = windows.entrySet().iterator();
+                    if (!sweepCursor.hasNext()) return;
+                }
+                Map.Entry<String, KeyWindow> entry = sweepCursor.next();
+                KeyWindow window = entry.getValue();
+                synchronized (window) {
+                    if (window.expire(oldestEpoch)) evict(entry.getKey(), window);
+                }
+            }
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private void evict(final String key, final KeyWindow window) {
+        synchronized (window) {
+            window.evicted = true;
+            if (windows.remove(key, window)) reservedKeys.decrementAndGet();
+        }
+    }
+
+    private long oldestLiveEpoch(final long now) {
+        return Math.floorDiv(now - windowMillis, resolutionMillis) + 1;
+    }
+
+    /**
+     * Non-empty buckets of a key in insertion order. Amounts which are not representable in micro-units,
+     * or would overflow the bucket sum, go to a lazily created exact accumulator of the bucket.
+     * Guarded by its own monitor.
+     */
+    private static final class KeyWindow {
+        // epoch, count, sum, min, max of a bucket
+        private static final int STRIDE = 5;
+
+        private long[] buckets = new long[STRIDE];
+        private int size;
+        private Map<Long, FixedPointAccumulator> exact;
+        private boolean evicted;
+
+        void add(final long epoch, final BigDecimal amount, final long oldestEpoch) {
+            long micros = FixedPointAccumulator.toMicros(amount);
+            if (micros == NOT_REPRESENTABLE) {
+                addExact(epoch, amount);
+                return;
+            }
+
+            int at = find(epoch);
+            if (at < 0) {
+                at = append(epoch, oldestEpoch);
+                buckets[at + 1] = 1;
+                buckets[at + 2] = micros;
+                buckets[at + 3] = micros;
+                buckets[at + 4] = micros;
+                return;
+            }
+
+            long sum = buckets[at + 2];
+            long result = sum + micros;
+            if (((sum ^ result) & (micros ^ result)) < 0) {
+                addExact(epoch, amount);
+                return;
+            }
+            buckets[at + 1]++;
+            buckets[at + 2] = result;
+            if (micros < buckets[at + 3]) buckets[at + 3] = micros;
+            if (micros > buckets[at + 4]) buckets[at + 4] = micros;
+        }
+
+        void fold(final long fromEpoch, final long toEpoch, final FixedPointAccumulator into) {
+            for (int at = 0; at < size * STRIDE; at += STRIDE) {
+                long epoch = buckets[at];
+                if (epoch < fromEpoch || epoch > toEpoch) continue;
+                into.addMicros(buckets[at + 1], buckets[at + 2], buckets[at + 3], buckets[at + 4]);
+            }
+            if (exact == null) return;
+            exact.forEach((epoch, accumulator) -> {
+                if (epoch >= fromEpoch && epoch <= toEpoch) into.merge(accumulator);
+            });
+        }
+
+        /**
+         * Drops buckets older than the window
+         *
+         * @return whether the window is empty
+         */
+        boolean expire(final long oldestEpoch) {
+            int kept = 0;
+            for (int at = 0; at < size * STRIDE; at += STRIDE) {
+                if (buckets[at] < oldestEpoch) continue;
+                if (kept != at) System.arraycopy(buckets, at, buckets, kept, STRIDE);
+                kept += STRIDE;
+            }
+            size = kept / STRIDE;
+
+            if (exact != null) {
+                exact.keySet().removeIf(epoch -> epoch < oldestEpoch);
+                if (exact.isEmpty()) exact = null;
+            }
+            return size == 0 && exact == null;
+        }
+
+        private int find(final long epoch) {
+            for (int at = 0; at < size * STRIDE; at += STRIDE) {
+                if (buckets[at] == epoch) return at;
+            }
+            return -1;
+        }
+
+        private int append(final long epoch, final long oldestEpoch) {
+            if (size * STRIDE == buckets.length) {
+                expire(oldestEpoch);
+                if (size * STRIDE == buckets.length) buckets = Arrays.copyOf(buckets, buckets.length * 2);
+            }
+            int at = size * STRIDE;
+            buckets[at] = epoch;
+            size++;
+            return at;
+        }
+
+        private void addExact(final long epoch, final BigDecimal amount) {
+            if (exact == null) exact = new HashMap<>();
+            exact.computeIfAbsent(epoch, e -> new FixedPointAccumulator()).add(amount);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.n26.repository;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.n26.repository.FixedPointAccumulator.NOT_REPRESENTABLE;
+
+/**
+ * Store of fixed-size slot records in a direct buffer, so neither the heap nor the work of the garbage collector
+ * grows with the number of slots. A record holds epoch, count, sum, min and max, amounts as {@code long} micro-units.
+ * Amounts which do not fit, and sums which would overflow, are kept in an on-heap {@link FixedPointAccumulator}
+ * of the slot instead, which only exists until the slot is reused.
+ *
+ * Slots are guarded by a fixed number of monitors, neighbouring slots by different ones.
+ */
+class OffHeapSlotStore implements SlotStore {
+
+    static final int RECORD_SIZE = 6 * Long.BYTES;
+
+    private static final int EPOCH = 0;
+    private static final int COUNT = 8;
+    private static final int SUM = 16;
+    private static final int MIN = 24;
+    private static final int MAX = 32;
+    // 1 while the slot has amounts in the exact map, saves the lookup on every read
+    private static final int SPILLED = 40;
+    private static final int LOCKS = 256;
+
+    private final int size;
+    private final ByteBuffer records;
+    private final Object[] locks;
+    // guarded by the monitor of the slot
+    private final Map<Integer, FixedPointAccumulator> exact = new ConcurrentHashMap<>();
+
+    OffHeapSlotStore(final int size) {
+        if (size > Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalArgumentException("At most " + Integer.MAX_VALUE / RECORD_SIZE
+                    + " slots fit into a direct buffer, got " + size);
+        }
+        this.size = size;
+        this.records = ByteBuffer.allocateDirect(size * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        this.locks = new Object[Math.min(size, LOCKS)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        clear();
+    }
+
+    @Override
+    public void add(final int index, final long epoch, final BigDecimal amount) {
+        synchronized (lock(index)) {
+            if (!claim(index, epoch)) return; // slot already reused, transaction is outdated
+            long micros = FixedPointAccumulator.toMicros(amount);
+            if (micros == NOT_REPRESENTABLE || !addMicros(index, 1, micros, micros, micros)) {
+                spill(index).add(amount);
+            }
+        }
+    }
+
+    @Override
+    public void merge(final int index, final long epoch, final FixedPointAccumulator batch) {
+        synchronized (lock(index)) {
+            if (!claim(index, epoch)) return;
+            if (!batch.isMicros()
+                    || !addMicros(index, batch.getCount(), batch.getMicroSum(), batch.getMicroMin(), batch.getMicroMax())) {
+                spill(index).merge(batch);
+            }
+        }
+    }
+
+    @Override
+    public void fold(final long fromEpoch, final long toEpoch, final FixedPointAccumulator into) {
+        // every epoch maps to a single slot, only the slots of the requested range are visited
+        for (long epoch = Math.max(fromEpoch, toEpoch - size + 1); epoch <= toEpoch; epoch++) {
+            int index = (int) Math.floorMod(epoch, (long) size);
+            int offset = index * RECORD_SIZE;
+            synchronized (lock(index)) {
+                if (records.getLong(offset + EPOCH) != epoch) continue;
+
+                long count = records.getLong(offset + COUNT);
+                if (count > 0) {
+                    into.addMicros(count, records.getLong(offset + SUM),
+                            records.getLong(offset + MIN), records.getLong(offset + MAX));
+                }
+                if (records.getLong(offset + SPILLED) != 0) into.merge(exact.get(index));
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int index = 0; index < size; index++) {
+            synchronized (lock(index)) {
+                reset(index, Long.MIN_VALUE);
+            }
+        }
+    }
+
+    private Object lock(final int index) {
+        return locks[index % locks.length];
+    }
+
+    // false if the slot already holds a newer epoch
+    private boolean claim(final int index, final long epoch) {
+        long current = records.getLong(index * RECORD_SIZE + EPOCH);
+        if (current > epoch) return false;
+        if (current < epoch) reset(index, epoch);
+        return true;
+    }
+
+    private void reset(final int index, final long epoch) {
+        int offset = index * RECORD_SIZE;
+        if (records.getLong(offset + SPILLED) != 0) exact.remove(index);
+        records.putLong(offset + EPOCH, epoch)
+                .putLong(offset + COUNT, 0)
+                .putLong(offset + SUM, 0)
+                .putLong(offset + MIN, Long.MAX_VALUE)
+                .putLong(offset + MAX, Long.MIN_VALUE)
+                .putLong(offset + SPILLED, 0);
+    }
+
+    // false, leaving the record untouched, if the sum would overflow
+    private boolean addMicros(final int index, final long count, final long sum, final long min, final long max) {
+        int offset = index * RECORD_SIZE;
+        long current = records.getLong(offset + SUM);
+        long result = current + sum;
+        if (((current ^ result) & (sum ^ result)) < 0) return false;
+
+        records.putLong(offset + COUNT, records.getLong(offset + COUNT) + count)
+                .putLong(offset + SUM, result);
+        if (min < records.getLong(offset + MIN)) records.putLong(offset + MIN, min);
+        if (max > records.getLong(offset + MAX)) records.putLong(offset + MAX, max);
+        return true;
+    }
+
+    private FixedPointAccumulator spill(final int index) {
+        records.putLong(index * RECORD_SIZE + SPILLED, 1);
+        return exact.computeIfAbsent(index, i -> new FixedPointAccumulator());
+    }
+}
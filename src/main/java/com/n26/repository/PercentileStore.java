@@ -0,0 +1,100 @@
+package com.n26.repository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Ring of {@link AmountSketch} slots next to the {@link SlotStore} of a {@link RingBufferEngine}.
+ * A sketch is far bigger than an aggregate, so its slots are coarser than the aggregate slots and
+ * percentiles may lose transactions up to one percentile resolution before the rest of the window.
+ * Sketches are allocated on the first write into their slot and reused afterwards.
+ */
+final class PercentileStore {
+
+    private final long resolutionMillis;
+    private final Slot[] slots;
+
+    PercentileStore(final Duration resolution, final long retentionMillis) {
+        this(resolution, retentionMillis, 0);
+    }
+
+    /**
+     * @param futureSkewMillis how far ahead of the clock slots are written, they are kept in addition to the retention
+     */
+    PercentileStore(final Duration resolution, final long retentionMillis, final long futureSkewMillis) {
+        this.resolutionMillis = resolution.toMillis();
+        if (resolutionMillis <= 0 || retentionMillis % resolutionMillis != 0) {
+            throw new IllegalArgumentException("Percentile resolution must divide " + retentionMillis + "ms, got " + resolution);
+        }
+        long futureSlots = (futureSkewMillis + resolutionMillis - 1) / resolutionMillis;
+        this.slots = new Slot[(int) (retentionMillis / resolutionMillis + futureSlots)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    long getResolutionMillis() {
+        return resolutionMillis;
+    }
+
+    long epoch(final long timestamp) {
+        return Math.floorDiv(timestamp, resolutionMillis);
+    }
+
+    void add(final long epoch, final BigDecimal amount) {
+        Slot slot = slot(epoch);
+        synchronized (slot) {
+            if (prepare(slot, epoch)) slot.sketch.add(amount);
+        }
+    }
+
+    void merge(final long epoch, final AmountSketch batch) {
+        Slot slot = slot(epoch);
+        synchronized (slot) {
+            if (prepare(slot, epoch)) slot.sketch.merge(batch);
+        }
+    }
+
+    /**
+     * Merges the sketches of the slots fully inside the window ending at {@code now}
+     */
+    void fold(final long now, final long windowMillis, final AmountSketch into) {
+        long fromEpoch = Math.floorDiv(now - windowMillis, resolutionMillis) + 1;
+        long toEpoch = epoch(now);
+        for (long epoch = Math.max(fromEpoch, toEpoch - slots.length + 1); epoch <= toEpoch; epoch++) {
+            Slot slot = slot(epoch);
+            synchronized (slot) {
+                if (slot.epoch == epoch) into.merge(slot.sketch);
+            }
+        }
+    }
+
+    void clear() {
+        for (Slot slot : slots) {
+            synchronized (slot) {
+                slot.epoch = Long.MIN_VALUE;
+                if (slot.sketch != null) slot.sketch.reset();
+            }
+        }
+    }
+
+    private Slot slot(final long epoch) {
+        return slots[(int) Math.floorMod(epoch, (long) slots.length)];
+    }
+
+    // false if the slot was already reused for a newer epoch
+    private static boolean prepare(final Slot slot, final long epoch) {
+        if (slot.epoch > epoch) return false;
+        if (slot.sketch == null) slot.sketch = new AmountSketch();
+        if (slot.epoch < epoch) {
+            slot.epoch = epoch;
+            slot.sketch.reset();
+        }
+        return true;
+    }
+
+    private static final class Slot {
+        private long epoch = Long.MIN_VALUE;
+        private AmountSketch sketch;
+    }
+}
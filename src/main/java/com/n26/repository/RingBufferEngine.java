@@ -0,0 +1,320 @@
+package com.n26.repository;
+
+import com.n26.domain.Statistics;
+import com.n26.domain.Transaction;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Splits the longest window into a fixed ring of time slots, each holding the aggregate of its transactions.
+ * A slot is reused once its time range leaves the longest window, so no cleanup has to be scheduled.
+ * Every window is answered from the same ring, {@link #getStatistics(Duration)} folds only the slots
+ * of the requested window, a constant number of them.
+ *
+ * A slot is dropped as soon as its oldest instant expires, i.e. transactions may leave
+ * a window up to one slot resolution early.
+ *
+ * Transactions are bucketed by their own timestamp. Slots up to the future skew ahead of the clock are kept
+ * as well, a transaction from a fast producer clock is stored right away and counts once its slot is reached.
+ * With an allowed lateness the watermark {@code now - lateness} makes every slot ending before it final:
+ * it takes no more writes, so reads fold the final part of a window once per slot and only the slots
+ * since the watermark on every call. A write racing the watermark with an older clock reading may be
+ * missing from that cached part until the next slot.
+ *
+ * Percentiles are optional, they are read from a {@link PercentileStore} by merging the sketches of the live
+ * slots and clamped to the exact extremes of the window.
+ */
+@Slf4j
+class RingBufferEngine implements StatisticsEngine {
+
+    private final long slotMillis;
+    private final Set<Duration> windows;
+    private final long retentionMillis;
+    private final long futureSkewMillis;
+    private final long latenessMillis;
+    private final int slotCount;
+    private final SlotStore slots;
+    private final PercentileStore percentiles;
+    private final LongSupplier clock;
+    // only incremented, so every sum is at least any sum read before
+    private final LongAdder writes = new LongAdder();
+    // fold of the final slots per window, empty without an allowed lateness
+    private final Map<Duration, AtomicReference<FinalFold>> finalFolds = new HashMap<>();
+    // changes whenever final slots are written, invalidating every cached fold
+    private final AtomicLong finalGeneration = new AtomicLong();
+
+    RingBufferEngine(final Duration resolution,
+                     final Collection<Duration> windows,
+                     final IntFunction<SlotStore> slotStoreFactory) {
+        this(resolution, windows, slotStoreFactory, null, System::currentTimeMillis);
+    }
+
+    /**
+     * @param percentileResolution resolution of the amount sketches, {@code null} to not report percentiles
+     * @param clock epoch millis windows are read at
+     */
+    RingBufferEngine(final Duration resolution,
+                     final Collection<Duration> windows,
+                     final IntFunction<SlotStore> slotStoreFactory,
+                     final Duration percentileResolution,
+                     final LongSupplier clock) {
+        this(resolution, windows, slotStoreFactory, percentileResolution, Duration.ZERO, Duration.ZERO, clock);
+    }
+
+    /**
+     * @param futureSkew how far ahead of the clock timestamps are accepted
+     * @param allowedLateness how far behind the clock timestamps are accepted, zero for the longest window
+     */
+    RingBufferEngine(final Duration resolution,
+                     final Collection<Duration> windows,
+                     final IntFunction<SlotStore> slotStoreFactory,
+                     final Duration percentileResolution,
+                     final Duration futureSkew,
+                     final Duration allowedLateness,
+                     final LongSupplier clock) {
+        this.slotMillis = resolution.toMillis();
+        if (slotMillis <= 0) {
+            throw new IllegalArgumentException("Slot resolution must be positive, got " + resolution);
+        }
+        if (windows.isEmpty()) {
+            throw new IllegalArgumentException("At least one window is required");
+        }
+
+        long longest = 0;
+        for (Duration window : windows) {
+            long windowMillis = window.toMillis();
+            if (windowMillis <= 0 || windowMillis % slotMillis != 0) {
+                throw new IllegalArgumentException("Slot resolution must divide " + window + ", got " + resolution);
+            }
+            longest = Math.max(longest, windowMillis);
+        }
+        if (futureSkew.isNegative() || allowedLateness.isNegative()) {
+            throw new IllegalArgumentException("Future skew and allowed lateness must not be negative, got "
+                    + futureSkew + " and " + allowedLateness);
+        }
+        this.windows = Collections.unmodifiableSet(new LinkedHashSet<>(windows));
+        this.retentionMillis = longest;
+        this.futureSkewMillis = futureSkew.toMillis();
+        this.latenessMillis = allowedLateness.toMillis();
+        this.slotCount = (int) (retentionMillis / slotMillis + (futureSkewMillis + slotMillis - 1) / slotMillis);
+        this.slots = slotStoreFactory.apply(slotCount);
+        if (latenessMillis > 0) {
+            for (Duration window : this.windows) {
+                if (window.toMillis() > latenessMillis) finalFolds.put(window, new AtomicReference<>());
+            }
+        }
+        this.percentiles = percentileResolution == null ? null : percentileStore(percentileResolution);
+        this.clock = clock;
+    }
+
+    @Override
+    public Statistics getStatistics(final Duration window) {
+        if (!windows.contains(window)) {
+            throw new IllegalArgumentException("Window " + window + " is not served");
+        }
+
+        long now = clock.getAsLong();
+        long fromEpoch = oldestLiveEpoch(now, window.toMillis());
+        FixedPointAccumulator total = new FixedPointAccumulator();
+        AtomicReference<FinalFold> finalFold = finalFolds.get(window);
+        long lastFinalEpoch = lastFinalEpoch(now);
+        if (finalFold != null && lastFinalEpoch >= fromEpoch) {
+            total.merge(finalFold(finalFold, fromEpoch, lastFinalEpoch));
+            fromEpoch = lastFinalEpoch + 1;
+        }
+        slots.fold(fromEpoch, Math.floorDiv(now, slotMillis), total);
+        if (percentiles == null || total.getCount() == 0) return total.toStatistics();
+
+        AmountSketch sketch = new AmountSketch();
+        percentiles.fold(now, window.toMillis(), sketch);
+        return new Statistics(total.toStatistics(),
+                quantile(sketch, 0.5, total),
+                quantile(sketch, 0.9, total),
+                quantile(sketch, 0.99, total));
+    }
+
+    @Override
+    public Set<Duration> getWindows() {
+        return windows;
+    }
+
+    /**
+     * Sum of the number of writes and the newest slot, grows on every write and whenever a slot expires.
+     * All windows are multiples of a slot, so their oldest slots move on together with the newest one.
+     * Sketch slots need not be aligned with aggregate slots and are counted separately.
+     */
+    @Override
+    public long getVersion() {
+        long now = clock.getAsLong();
+        long version = writes.sum() + Math.floorDiv(now, slotMillis);
+        return percentiles == null ? version : version + percentiles.epoch(now);
+    }
+
+    @Override
+    public void insert(final Transaction transaction, final long now) {
+        long timestamp = transaction.getTimestamp().toInstant().toEpochMilli();
+        long epoch = Math.floorDiv(timestamp, slotMillis);
+
+        if (epoch < oldestWritableEpoch(now) || epoch > newestWritableEpoch(now)) {
+            log.debug("Transaction is out of window, skipping {}", transaction);
+            return;
+        }
+
+        slots.add(index(epoch), epoch, transaction.getAmount());
+        if (percentiles != null) percentiles.add(percentiles.epoch(timestamp), transaction.getAmount());
+        writes.increment();
+    }
+
+    @Override
+    public void insertAll(final Collection<Transaction> transactions, final long now) {
+        insertAll(transactions, oldestWritableEpoch(now), newestWritableEpoch(now));
+    }
+
+    /**
+     * Merges every run of consecutive amounts of the same slot at once, producers sending in time order
+     * touch a slot once per batch and nothing is allocated per transaction unless percentiles are kept
+     */
+    @Override
+    public void insertAll(final long[] timestamps, final long[] amountMicros, final int count, final long now) {
+        long oldestEpoch = oldestWritableEpoch(now);
+        long newestEpoch = newestWritableEpoch(now);
+
+        FixedPointAccumulator run = new FixedPointAccumulator();
+        long runEpoch = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            long epoch = Math.floorDiv(timestamps[i], slotMillis);
+            if (epoch < oldestEpoch || epoch > newestEpoch) continue;
+
+            if (epoch != runEpoch && run.getCount() > 0) {
+                slots.merge(index(runEpoch), runEpoch, run);
+                run.reset();
+            }
+            runEpoch = epoch;
+            long micros = amountMicros[i];
+            run.addMicros(1, micros, micros, micros);
+            if (percentiles != null) {
+                percentiles.add(percentiles.epoch(timestamps[i]), FixedPointAccumulator.fromMicros(micros));
+            }
+        }
+        if (run.getCount() > 0) slots.merge(index(runEpoch), runEpoch, run);
+        writes.increment();
+    }
+
+    /**
+     * Accepts the whole retention, final slots included
+     */
+    @Override
+    public void restore(final Collection<Transaction> transactions, final long now) {
+        insertAll(transactions, oldestLiveEpoch(now, retentionMillis), newestWritableEpoch(now));
+        finalGeneration.incrementAndGet();
+    }
+
+    private void insertAll(final Collection<Transaction> transactions, final long oldestEpoch, final long newestEpoch) {
+        Map<Long, FixedPointAccumulator> batches = new HashMap<>();
+        Map<Long, AmountSketch> sketches = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            long timestamp = transaction.getTimestamp().toInstant().toEpochMilli();
+            long epoch = Math.floorDiv(timestamp, slotMillis);
+            if (epoch < oldestEpoch || epoch > newestEpoch) continue;
+
+            batches.computeIfAbsent(epoch, e -> new FixedPointAccumulator()).add(transaction.getAmount());
+            if (percentiles != null) {
+                sketches.computeIfAbsent(percentiles.epoch(timestamp), e -> new AmountSketch()).add(transaction.getAmount());
+            }
+        }
+        batches.forEach((epoch, batch) -> slots.merge(index(epoch), epoch, batch));
+        // a method reference would dereference percentiles even without sketches
+        sketches.forEach((epoch, sketch) -> percentiles.merge(epoch, sketch));
+        writes.increment();
+    }
+
+    @Override
+    public void wipe() {
+        slots.clear();
+        if (percentiles != null) percentiles.clear();
+        writes.increment();
+        finalGeneration.incrementAndGet();
+    }
+
+    // recomputed when the window moved on by a slot or final slots were written
+    private FixedPointAccumulator finalFold(final AtomicReference<FinalFold> cache, final long fromEpoch, final long toEpoch) {
+        long generation = finalGeneration.get();
+        FinalFold fold = cache.get();
+        if (fold == null || fold.fromEpoch != fromEpoch || fold.toEpoch != toEpoch || fold.generation != generation) {
+            FixedPointAccumulator total = new FixedPointAccumulator();
+            slots.fold(fromEpoch, toEpoch, total);
+            fold = new FinalFold(fromEpoch, toEpoch, generation, total);
+            cache.set(fold);
+        }
+        return fold.total;
+    }
+
+    private PercentileStore percentileStore(final Duration percentileResolution) {
+        PercentileStore store = new PercentileStore(percentileResolution, retentionMillis, futureSkewMillis);
+        for (Duration window : windows) {
+            if (window.toMillis() % store.getResolutionMillis() != 0) {
+                throw new IllegalArgumentException("Percentile resolution must divide " + window + ", got " + percentileResolution);
+            }
+        }
+        return store;
+    }
+
+    // a bucket representative may lie slightly outside the amounts it stands for
+    private static BigDecimal quantile(final AmountSketch sketch, final double quantile, final FixedPointAccumulator total) {
+        BigDecimal estimate = sketch.getQuantile(quantile);
+        if (estimate == null) return null;
+        return estimate.max(total.getMin()).min(total.getMax());
+    }
+
+    // the oldest slot whose whole time range is still inside the window
+    private long oldestLiveEpoch(final long now, final long windowMillis) {
+        return Math.floorDiv(now - windowMillis, slotMillis) + 1;
+    }
+
+    // the newest slot ending at or before the watermark
+    private long lastFinalEpoch(final long now) {
+        return latenessMillis == 0 ? Long.MIN_VALUE : Math.floorDiv(now - latenessMillis, slotMillis) - 1;
+    }
+
+    private long oldestWritableEpoch(final long now) {
+        return Math.max(oldestLiveEpoch(now, retentionMillis), lastFinalEpoch(now) + 1);
+    }
+
+    private long newestWritableEpoch(final long now) {
+        return Math.floorDiv(now + futureSkewMillis, slotMillis);
+    }
+
+    private int index(final long epoch) {
+        return (int) Math.floorMod(epoch, (long) slotCount);
+    }
+
+    /**
+     * Aggregate of the final slots of a window, immutable once published
+     */
+    private static final class FinalFold {
+        private final long fromEpoch;
+        private final long toEpoch;
+        private final long generation;
+        private final FixedPointAccumulator total;
+
+        private FinalFold(final long fromEpoch, final long toEpoch, final long generation, final FixedPointAccumulator total) {
+            this.fromEpoch = fromEpoch;
+            this.toEpoch = toEpoch;
+            this.generation = generation;
+            this.total = total;
+        }
+    }
+}
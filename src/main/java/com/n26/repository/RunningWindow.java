@@ -0,0 +1,129 @@
+package com.n26.repository;
+
+import com.n26.domain.Statistics;
+import com.n26.domain.Transaction;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.n26.repository.StatisticsRepository.CALC_SCALE;
+import static com.n26.repository.StatisticsRepository.DEFAULT_ROUNDING;
+import static com.n26.repository.StatisticsRepository.EMPTY_STATISTICS;
+import static java.math.BigDecimal.ZERO;
+
+/**
+ * Running aggregate of a single window, shared by the engines which remove every transaction on its own.
+ * Each added transaction is scheduled for removal on a {@link TimingWheel}, min and max are recalculated
+ * from {@link WindowExtremes} only when an expiring amount was one of them, so with ticks coarser than
+ * a millisecond they may miss an amount up to one tick before it is removed.
+ *
+ * A timestamp ahead of the clock counts from its arrival: it is bucketed and removed as if it was made at
+ * the clock reading it was inserted with, so it stays for exactly one window and never shares an extremes
+ * bucket with a live transaction one window older.
+ *
+ * Not thread safe, callers have to guard it.
+ */
+final class RunningWindow {
+
+    private final long windowMillis;
+    private final WindowExtremes extremes;
+    private final TimingWheel<Transaction> removals;
+    private final List<Transaction> expired = new ArrayList<>();
+
+    private BigDecimal sum = ZERO;
+    private long count;
+    private BigDecimal min;
+    private BigDecimal max;
+
+    /**
+     * @param tickMillis granularity at which removals are due
+     * @param now epoch millis the removals start at
+     */
+    RunningWindow(final long windowMillis, final long tickMillis, final int wheelSize, final long now) {
+        this.windowMillis = windowMillis;
+        this.extremes = new WindowExtremes(windowMillis);
+        this.removals = new TimingWheel<>(tickMillis, wheelSize, now);
+    }
+
+    /**
+     * @param now reading of the clock the transaction was validated against, in epoch millis
+     */
+    void add(final Transaction transaction, final long now) {
+        BigDecimal amount = transaction.getAmount();
+        long timestamp = Math.min(transaction.getTimestamp().toInstant().toEpochMilli(), now);
+        sum = sum.add(amount);
+        min = count == 0 ? amount : min.min(amount);
+        max = count == 0 ? amount : max.max(amount);
+        count++;
+        extremes.add(timestamp, amount);
+        removals.schedule(timestamp + windowMillis, transaction);
+    }
+
+    /**
+     * Removes every transaction which left the window by {@code now} as one update
+     *
+     * @return the removed transactions, the list is reused by the next call
+     */
+    List<Transaction> expire(final long now) {
+        expired.clear();
+        removals.advance(now, expired::add);
+        if (expired.isEmpty()) return expired;
+
+        count -= expired.size();
+        boolean extremeExpired = false;
+        for (Transaction transaction : expired) {
+            BigDecimal amount = transaction.getAmount();
+            sum = sum.subtract(amount);
+            // extremes only change when an expiring amount is one of them
+            extremeExpired |= max.compareTo(amount) == 0 || min.compareTo(amount) == 0;
+        }
+
+        if (count <= 0) {
+            sum = ZERO;
+            count = 0;
+            min = null;
+            max = null;
+        } else if (extremeExpired) {
+            extremes.query(now);
+            min = extremes.getMin() == null ? ZERO : extremes.getMin();
+            max = extremes.getMax() == null ? ZERO : extremes.getMax();
+        }
+        return expired;
+    }
+
+    /**
+     * @return immutable statistics at view scale
+     */
+    Statistics toStatistics() {
+        if (count == 0) return EMPTY_STATISTICS;
+        BigDecimal avg = sum.divide(BigDecimal.valueOf(count), CALC_SCALE, DEFAULT_ROUNDING);
+        return new Statistics(new Statistics(sum, avg, max, min, count));
+    }
+
+    /**
+     * Scheduled removals not executed yet, may be slightly behind when read by another thread
+     */
+    int getPending() {
+        return removals.size();
+    }
+
+    /**
+     * How late a removed transaction left the window of its own timestamp, zero for one ahead of the clock
+     */
+    long lagMillis(final Transaction transaction, final long now) {
+        return Math.max(0L, now - transaction.getTimestamp().toInstant().toEpochMilli() - windowMillis);
+    }
+
+    /**
+     * Drops every transaction, the list last returned by {@link #expire(long)} is left as it is
+     */
+    void clear() {
+        sum = ZERO;
+        count = 0;
+        min = null;
+        max = null;
+        extremes.clear();
+        removals.clear();
+    }
+}
@@ -0,0 +1,179 @@
+package com.n26.repository;
+
+import com.n26.domain.Statistics;
+import com.n26.domain.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import static com.n26.repository.StatisticsRepository.EMPTY_STATISTICS;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Keeps a single {@link RunningWindow} whose removals are scheduled on a timing wheel.
+ * A single thread advances the wheel once per tick and subtracts all transactions expired in the meantime
+ * as one update, under one acquisition of the write lock writers take as well.
+ * Readers get the immutable statistics published with the last update.
+ * A running aggregate can not be narrowed to a shorter window, so only a single window is served.
+ */
+@Slf4j
+class ScheduledExpiryEngine implements StatisticsEngine {
+
+    private static final Duration DEFAULT_TICK = Duration.ofMillis(1);
+    // a turn of the lowest level spans half a second at the default tick, one further level covers minutes
+    static final int WHEEL_SIZE = 512;
+
+    private final Duration window;
+    private final LongSupplier clock;
+    // guarded by the write lock
+    private final RunningWindow aggregate;
+    // written under the write lock only
+    private volatile Statistics snapshot = EMPTY_STATISTICS;
+    private volatile long version;
+    private final ScheduledExecutorService expirer;
+
+    private final Lock writeLock = new ReentrantLock();
+    private final Counter lockContention;
+    private final Timer lockWait;
+    private final Timer expiryLag;
+
+    ScheduledExpiryEngine(final Duration window, final MeterRegistry registry) {
+        this(window, DEFAULT_TICK, registry, System::currentTimeMillis);
+    }
+
+    /**
+     * @param tick interval at which expired transactions are removed together
+     * @param clock epoch millis removals are measured against
+     */
+    ScheduledExpiryEngine(final Duration window, final Duration tick, final MeterRegistry registry, final LongSupplier clock) {
+        long tickMillis = tick.toMillis();
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Expiry tick must be at least a millisecond, got " + tick);
+        }
+        this.window = window;
+        this.clock = clock;
+        this.aggregate = new RunningWindow(window.toMillis(), tickMillis, WHEEL_SIZE, clock.getAsLong());
+        this.lockContention = Counter.builder("statistics.lock.contended")
+                .description("Write lock acquisitions which had to wait")
+                .register(registry);
+        this.lockWait = Timer.builder("statistics.lock.wait")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.expiryLag = Timer.builder("statistics.expiry.lag")
+                .description("Delay of a removal after the transaction left the window")
+                .publishPercentileHistogram()
+                .register(registry);
+        // read without the lock, the value may be slightly behind
+        Gauge.builder("statistics.expiry.pending", aggregate, RunningWindow::getPending)
+                .description("Scheduled removals not executed yet")
+                .register(registry);
+
+        this.expirer = newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        expirer.scheduleAtFixedRate(this::expire, tickMillis, tickMillis, MILLISECONDS);
+    }
+
+    @Override
+    public Statistics getStatistics(final Duration window) {
+        if (!this.window.equals(window)) {
+            throw new IllegalArgumentException("Window " + window + " is not served");
+        }
+        return snapshot;
+    }
+
+    @Override
+    public Set<Duration> getWindows() {
+        return Collections.singleton(window);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void insert(final Transaction transaction, final long now) {
+        lockWriteLock();
+        try {
+            aggregate.add(transaction, now);
+            publishUnderLock();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void insertAll(final Collection<Transaction> transactions, final long now) {
+        lockWriteLock();
+        try {
+            transactions.forEach(transaction -> aggregate.add(transaction, now));
+            publishUnderLock();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void wipe() {
+        lockWriteLock();
+        try {
+            aggregate.clear();
+            publishUnderLock();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        expirer.shutdownNow();
+    }
+
+    private void expire() {
+        long now = clock.getAsLong();
+        List<Transaction> expired;
+        lockWriteLock();
+        try {
+            expired = aggregate.expire(now);
+            if (!expired.isEmpty()) publishUnderLock();
+        } finally {
+            writeLock.unlock();
+        }
+
+        // only this thread expires, so the list stays untouched until the next tick
+        for (Transaction transaction : expired) {
+            expiryLag.record(aggregate.lagMillis(transaction, now), MILLISECONDS);
+        }
+    }
+
+    private void publishUnderLock() {
+        snapshot = aggregate.toStatistics();
+        version++;
+    }
+
+    private void lockWriteLock() {
+        if (writeLock.tryLock()) return;
+
+        lockContention.increment();
+        long start = System.nanoTime();
+        writeLock.lock();
+        lockWait.record(System.nanoTime() - start, NANOSECONDS);
+    }
+}
@@ -0,0 +1,324 @@
+package com.n26.repository;
+
+import com.n26.config.StatisticsProperties.WaitStrategy;
+import com.n26.domain.Statistics;
+import com.n26.domain.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+import static com.n26.repository.StatisticsRepository.EMPTY_STATISTICS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Single writer variant of {@link ScheduledExpiryEngine}. Inserting only publishes the transaction into
+ * a pre-allocated ring of mutable events. One writer thread drains everything published so far as a batch,
+ * applies it to the {@link RunningWindow} together with the removals due and publishes the result as
+ * an immutable snapshot. The window is owned by the writer thread, so neither writers nor readers take a lock.
+ *
+ * Inserting is asynchronous: a transaction is visible once the batch holding it is applied, the delay is
+ * recorded as {@code statistics.visibility.latency}. Publishers wait while the ring is full. A wipe passes
+ * through the ring as well and returns once it is applied. How the writer thread waits for events is set by
+ * the {@link WaitStrategy}, it wakes up at every tick anyway to remove expired transactions.
+ */
+class SingleWriterEngine implements StatisticsEngine {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    // the shortest park, the OS timer slack makes it some tens of microseconds
+    private static final long SLEEP_NANOS = 100L;
+    private static final long PUBLISHER_PARK_NANOS = 1_000L;
+
+    private final Duration window;
+    private final long tickNanos;
+    private final WaitStrategy waitStrategy;
+    private final LongSupplier clock;
+
+    private final Event[] events;
+    private final int mask;
+    // sequence of the event last published into each slot, the writer reads an event once it matches
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    // sequence of the first event not applied yet, events before it may be reused
+    private final AtomicLong applied = new AtomicLong();
+
+    private volatile Statistics snapshot = EMPTY_STATISTICS;
+    // written by the writer thread only
+    private volatile long version;
+    private volatile boolean running = true;
+    // set by the BLOCKING writer before it parks
+    private volatile boolean sleeping;
+
+    // owned by the writer thread
+    private final RunningWindow aggregate;
+
+    private final Timer visibilityLatency;
+    private final Timer expiryLag;
+    private final DistributionSummary batchSize;
+    private final Counter ringFull;
+    private final Thread writer;
+
+    /**
+     * @param tick interval at which expired transactions are removed together
+     * @param ringSize number of events, rounded up to a power of two
+     * @param clock epoch millis removals are measured against
+     */
+    SingleWriterEngine(final Duration window,
+                       final Duration tick,
+                       final int ringSize,
+                       final WaitStrategy waitStrategy,
+                       final MeterRegistry registry,
+                       final LongSupplier clock) {
+        long tickMillis = tick.toMillis();
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Expiry tick must be at least a millisecond, got " + tick);
+        }
+        if (ringSize <= 0 || ringSize > 1 << 30) {
+            throw new IllegalArgumentException("Ring size must be between 1 and 2^30, got " + ringSize);
+        }
+        this.window = window;
+        this.tickNanos = MILLISECONDS.toNanos(tickMillis);
+        this.waitStrategy = waitStrategy;
+        this.clock = clock;
+
+        int size = ringSize <= 1 ? 1 : Integer.highestOneBit((ringSize - 1) << 1);
+        this.events = new Event[size];
+        for (int i = 0; i < size; i++) {
+            events[i] = new Event();
+        }
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1L);
+        }
+        this.aggregate = new RunningWindow(window.toMillis(), tickMillis, ScheduledExpiryEngine.WHEEL_SIZE,
+                clock.getAsLong());
+
+        this.visibilityLatency = Timer.builder("statistics.visibility.latency")
+                .description("Delay from publishing the oldest transaction of a batch until readers see it")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.expiryLag = Timer.builder("statistics.expiry.lag")
+                .description("Delay of a removal after the transaction left the window")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.batchSize = DistributionSummary.builder("statistics.writer.batch")
+                .description("Events applied by the writer thread at once")
+                .register(registry);
+        this.ringFull = Counter.builder("statistics.writer.ring.full")
+                .description("Publications which had to wait for the writer to free events")
+                .register(registry);
+        Gauge.builder("statistics.writer.backlog", this, e -> e.claimed.get() - e.applied.get())
+                .description("Published events not applied yet")
+                .register(registry);
+        // read outside the writer thread, the value may be slightly behind
+        Gauge.builder("statistics.expiry.pending", aggregate, RunningWindow::getPending)
+                .description("Scheduled removals not executed yet")
+                .register(registry);
+
+        this.writer = new Thread(this::run, "statistics-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public Statistics getStatistics(final Duration window) {
+        if (!this.window.equals(window)) {
+            throw new IllegalArgumentException("Window " + window + " is not served");
+        }
+        return snapshot;
+    }
+
+    @Override
+    public Set<Duration> getWindows() {
+        return Collections.singleton(window);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void insert(final Transaction transaction, final long now) {
+        long sequence = claim(1);
+        write(sequence, transaction, now, System.nanoTime());
+    }
+
+    /**
+     * Claims events for up to a whole ring at once, the writer may start on a batch before all of it is published
+     */
+    @Override
+    public void insertAll(final Collection<Transaction> transactions, final long now) {
+        Iterator<Transaction> iterator = transactions.iterator();
+        int remaining = transactions.size();
+        while (remaining > 0) {
+            int claim = Math.min(remaining, events.length);
+            long first = claim(claim);
+            long publishedNanos = System.nanoTime();
+            for (long sequence = first; sequence < first + claim; sequence++) {
+                write(sequence, iterator.next(), now, publishedNanos);
+            }
+            remaining -= claim;
+        }
+    }
+
+    /**
+     * Returns once the wipe is applied, so a read right after it sees the empty window
+     */
+    @Override
+    public void wipe() {
+        long sequence = claim(1);
+        write(sequence, null, 0L, System.nanoTime());
+        while (running && applied.get() <= sequence) {
+            LockSupport.parkNanos(PUBLISHER_PARK_NANOS);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+    }
+
+    private long claim(final int claim) {
+        long first = claimed.getAndAdd(claim);
+        // the last claimed event may reuse a slot once the event a ring before it is applied
+        long wrap = first + claim - events.length;
+        if (applied.get() >= wrap) return first;
+
+        ringFull.increment();
+        while (applied.get() < wrap) {
+            if (!running) throw new IllegalStateException("Statistics writer is closed");
+            LockSupport.parkNanos(PUBLISHER_PARK_NANOS);
+        }
+        return first;
+    }
+
+    // a wipe is an event without transaction
+    private void write(final long sequence, final Transaction transaction, final long now, final long publishedNanos) {
+        int index = (int) sequence & mask;
+        Event event = events[index];
+        event.transaction = transaction;
+        event.now = now;
+        event.publishedNanos = publishedNanos;
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            // a full fence, so either the writer sees the event on its last check or this sees it sleeping
+            published.set(index, sequence);
+            if (sleeping) LockSupport.unpark(writer);
+        } else {
+            published.lazySet(index, sequence);
+        }
+    }
+
+    private void run() {
+        long next = 0;
+        long nextTick = System.nanoTime() + tickNanos;
+        while (running) {
+            long end = next;
+            while (end - next < events.length && published.get((int) end & mask) == end) {
+                end++;
+            }
+            boolean changed = false;
+            for (long sequence = next; sequence < end; sequence++) {
+                changed |= apply(events[(int) sequence & mask]);
+            }
+            long nanos = System.nanoTime();
+            if (nanos - nextTick >= 0) {
+                changed |= expire(clock.getAsLong());
+                nextTick = nanos + tickNanos;
+            }
+            if (changed) publish();
+
+            if (end > next) {
+                visibilityLatency.record(System.nanoTime() - events[(int) next & mask].publishedNanos, NANOSECONDS);
+                batchSize.record(end - next);
+                applied.lazySet(end);
+                next = end;
+            } else {
+                await(next, nextTick);
+            }
+        }
+    }
+
+    private boolean apply(final Event event) {
+        Transaction transaction = event.transaction;
+        event.transaction = null;
+        if (transaction == null) {
+            aggregate.clear();
+        } else {
+            aggregate.add(transaction, event.now);
+        }
+        return true;
+    }
+
+    private boolean expire(final long now) {
+        List<Transaction> expired = aggregate.expire(now);
+        for (Transaction transaction : expired) {
+            expiryLag.record(aggregate.lagMillis(transaction, now), MILLISECONDS);
+        }
+        return !expired.isEmpty();
+    }
+
+    private void publish() {
+        snapshot = aggregate.toStatistics();
+        version++;
+    }
+
+    // returns when the event is published, at the deadline or on close
+    private void await(final long sequence, final long deadline) {
+        int index = (int) sequence & mask;
+        int tries = 0;
+        while (running && published.get(index) != sequence) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return;
+
+            switch (waitStrategy) {
+                case BUSY_SPIN:
+                    break;
+                case YIELDING:
+                    if (++tries > SPIN_TRIES) Thread.yield();
+                    break;
+                case SLEEPING:
+                    tries++;
+                    if (tries > SPIN_TRIES + YIELD_TRIES) {
+                        LockSupport.parkNanos(SLEEP_NANOS);
+                    } else if (tries > SPIN_TRIES) {
+                        Thread.yield();
+                    }
+                    break;
+                case BLOCKING:
+                default:
+                    sleeping = true;
+                    if (published.get(index) != sequence) LockSupport.parkNanos(this, remaining);
+                    sleeping = false;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Mutable slot of the ring, written by the publisher which claimed it and read by the writer thread
+     * once its sequence is published
+     */
+    private static final class Event {
+        private Transaction transaction;
+        // clock reading the transaction was validated against
+        private long now;
+        private long publishedNanos;
+    }
+}
@@ -0,0 +1,29 @@
+package com.n26.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed number of per-slot aggregates used by {@link RingBufferEngine}.
+ * Every slot remembers the epoch it currently aggregates, a slot holding an older epoch is reset on write.
+ * The index of an epoch is always {@code floorMod(epoch, size)}.
+ */
+interface SlotStore {
+
+    /**
+     * Merges the amount into the slot, writes for an epoch older than the one held by the slot are ignored
+     */
+    void add(int index, long epoch, BigDecimal amount);
+
+    /**
+     * Merges a pre-aggregated batch into the slot, same epoch rules as for {@link #add(int, long, BigDecimal)}
+     */
+    void merge(int index, long epoch, FixedPointAccumulator batch);
+
+    /**
+     * Merges every slot holding an epoch within {@code [fromEpoch, toEpoch]} into the accumulator,
+     * visiting only the slots of that range
+     */
+    void fold(long fromEpoch, long toEpoch, FixedPointAccumulator into);
+
+    void clear();
+}
@@ -0,0 +1,75 @@
+package com.n26.repository;
+
+import com.n26.domain.Statistics;
+import com.n26.domain.Transaction;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Storage strategy behind {@link StatisticsRepository}.
+ * Implementations must be thread safe and answer {@link #getStatistics(Duration)} in O(1).
+ * Writers pass the time they were validated at, readers are answered at the time of the repository's clock.
+ */
+interface StatisticsEngine {
+
+    /**
+     * @throws IllegalArgumentException if the window is not one of {@link #getWindows()}
+     */
+    Statistics getStatistics(Duration window);
+
+    Set<Duration> getWindows();
+
+    /**
+     * Monotonically increasing, changes whenever the content of any window may have changed
+     */
+    long getVersion();
+
+    /**
+     * @param now reading of the clock the transaction was validated against, in epoch millis
+     */
+    void insert(Transaction transaction, long now);
+
+    /**
+     * Inserts already validated transactions as one update where the engine allows it
+     */
+    default void insertAll(final Collection<Transaction> transactions, final long now) {
+        transactions.forEach(transaction -> insert(transaction, now));
+    }
+
+    /**
+     * Inserts already validated transactions given as parallel arrays, e.g. decoded from binary records
+     *
+     * @param amountMicros amounts in micro-units, i.e. scaled by {@code 10^6}
+     */
+    default void insertAll(final long[] timestamps, final long[] amountMicros, final int count, final long now) {
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(new Transaction(FixedPointAccumulator.fromMicros(amountMicros[i]),
+                    Instant.ofEpochMilli(timestamps[i]).atZone(UTC)));
+        }
+        insertAll(transactions, now);
+    }
+
+    /**
+     * Inserts transactions recovered on startup, unlike {@link #insertAll(Collection, long)} the whole retention
+     * is accepted, even behind the watermark of an allowed lateness
+     */
+    default void restore(final Collection<Transaction> transactions, final long now) {
+        insertAll(transactions, now);
+    }
+
+    void wipe();
+
+    /**
+     * Stops background work of the engine, if any
+     */
+    default void close() {
+    }
+}
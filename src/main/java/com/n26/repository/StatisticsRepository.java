@@ -1,30 +1,34 @@
 package com.n26.repository;
 
+import com.n26.config.CoarseClock;
+import com.n26.config.StatisticsProperties;
+import com.n26.config.StatisticsProperties.Arithmetic;
 import com.n26.domain.Statistics;
 import com.n26.domain.Transaction;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PreDestroy;
+
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Paths;
 import java.time.Duration;
-import java.time.OffsetDateTime;
-import java.time.ZonedDateTime;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.function.BinaryOperator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
 
 import static java.math.BigDecimal.ZERO;
 import static java.math.RoundingMode.HALF_UP;
-import static java.time.ZoneOffset.UTC;
-import static java.time.temporal.ChronoUnit.MILLIS;
-import static java.time.temporal.ChronoUnit.MINUTES;
-import static java.util.concurrent.Executors.newScheduledThreadPool;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 @Slf4j
 @Repository
@@ -36,126 +40,214 @@ public class StatisticsRepository {
     public static final Statistics EMPTY_STATISTICS =
             new Statistics(SCALED_ZERO, SCALED_ZERO, SCALED_ZERO, SCALED_ZERO, 0);
 
-    private static final int INVALIDATION_POOL_SIZE = 4;
-    private static final long TTL = Duration.of(1, MINUTES).toMillis();
-    private static final ScheduledExecutorService INVALIDATION_POOL = newScheduledThreadPool(INVALIDATION_POOL_SIZE);
-    private static final AtomicReference<Statistics> GOLDEN_TRUTH_STATISTICS = new AtomicReference<>(EMPTY_STATISTICS);
-    private static final Deque<BigDecimal> MIN_STACK = new ArrayDeque<>();
-    private static final Deque<BigDecimal> MAX_STACK = new ArrayDeque<>();
-
-    private static final BinaryOperator<Statistics> MERGE_ADD = (prev, t) -> {
-        long newCount = prev.getCount() + 1;
+    private final Duration defaultWindow;
+    private final LongSupplier clock;
+    private final StatisticsEngine engine;
+    private final KeyedStatistics keyedStatistics;
+    private final TransactionJournal journal;
+    private final Timer insertTimer;
+    private final Timer insertAllTimer;
+    private final Timer readTimer;
+
+    public StatisticsRepository() {
+        this(new StatisticsProperties());
+    }
 
-        BigDecimal sum = prev.getSum().add(t.getSum());
-        BigDecimal avg = addToAverage(prev.getAvg().setScale(CALC_SCALE, HALF_UP),
-                t.getAvg().setScale(CALC_SCALE, HALF_UP),
-                newCount);
-        BigDecimal max = prev.getMax().max(t.getMax());
-        BigDecimal min = prev.getCount() == 0 ? t.getMin() : prev.getMin().min(t.getMin());
+    public StatisticsRepository(final StatisticsProperties properties) {
+        this(properties, new CompositeMeterRegistry(), new CoarseClock());
+    }
 
-        return new Statistics(sum, avg, max, min, newCount);
-    };
+    @Autowired
+    public StatisticsRepository(final StatisticsProperties properties,
+                                final MeterRegistry registry,
+                                final CoarseClock clock) {
+        this(properties, registry, clock::millis);
+    }
 
-    private static final BinaryOperator<Statistics> MERGE_SUBTRACT = (prev, t) -> {
-        long count = prev.getCount() - 1;
-        if (count == 0) return EMPTY_STATISTICS;
+    /**
+     * @param clock epoch millis all time decisions are taken at, e.g. a virtual time of a simulation
+     */
+    public StatisticsRepository(final StatisticsProperties properties,
+                                final MeterRegistry registry,
+                                final LongSupplier clock) {
+        this.defaultWindow = properties.getWindow();
+        this.clock = clock;
+        this.engine = createEngine(properties, registry, clock);
+        this.keyedStatistics = new KeyedStatistics(properties.getWindow(), properties.getKeyResolution(),
+                properties.getFutureSkew(), properties.getMaxKeys(), registry);
+        this.insertTimer = timer("statistics.insert", registry);
+        this.insertAllTimer = timer("statistics.insert.batch", registry);
+        this.readTimer = timer("statistics.read", registry);
+        this.journal = createJournal(properties, engine, clock.getAsLong());
+        Gauge.builder("statistics.window.count", engine, e -> e.getStatistics(defaultWindow).getCount())
+                .description("Transactions currently inside the window")
+                .register(registry);
+        log.info("Using {} statistics engine serving windows {}", properties.getEngine(), engine.getWindows());
+    }
 
-        BigDecimal maxFromStack = MAX_STACK.peek();
-        BigDecimal minFromStack = MIN_STACK.peek();
+    public Statistics getStatistics() {
+        return getStatistics(defaultWindow);
+    }
 
-        BigDecimal sum = prev.getSum().subtract(t.getSum());
-        BigDecimal avg = subtractFromAverage(prev.getAvg().setScale(CALC_SCALE, HALF_UP),
-                t.getAvg().setScale(CALC_SCALE, HALF_UP),
-                prev.getCount());
-        BigDecimal max = maxFromStack == null ? ZERO : maxFromStack;
-        BigDecimal min = minFromStack == null ? ZERO : minFromStack;
+    /**
+     * @throws IllegalArgumentException if the window is not one of {@link #getWindows()}
+     */
+    public Statistics getStatistics(final Duration window) {
+        long start = System.nanoTime();
+        Statistics statistics = engine.getStatistics(window);
+        readTimer.record(System.nanoTime() - start, NANOSECONDS);
+        return statistics;
+    }
 
-        return new Statistics(sum, avg, max, min, count);
-    };
+    /**
+     * Statistics of the default window for transactions with the key, empty for unknown keys
+     */
+    public Statistics getStatistics(final String key) {
+        return keyedStatistics.getStatistics(key, clock.getAsLong());
+    }
 
-    private final Lock writeLock = new ReentrantLock();
+    public Set<Duration> getWindows() {
+        return engine.getWindows();
+    }
 
-    public Statistics getStatistics() {
-        return new Statistics(GOLDEN_TRUTH_STATISTICS.get());
+    public long getVersion() {
+        return engine.getVersion();
     }
 
     public void insert(final Transaction transaction) {
-        addTransaction(transaction);
-        scheduleForRemoval(transaction);
+        insert(transaction, clock.getAsLong());
+    }
+
+    /**
+     * @param now reading of the clock the transaction was validated against, in epoch millis
+     */
+    public void insert(final Transaction transaction, final long now) {
+        long start = System.nanoTime();
+        engine.insert(transaction, now);
+        insertKeyed(transaction, now);
+        if (journal != null && !journal.append(transaction, now)) {
+            log.warn("Amount of {} is too large for the journal", transaction);
+        }
+        insertTimer.record(System.nanoTime() - start, NANOSECONDS);
         log.debug("Transaction added {}", transaction);
     }
 
-    private void scheduleForRemoval(Transaction transaction) {
-        ZonedDateTime currentZonedDateTime = OffsetDateTime.now(UTC).toZonedDateTime();
-        long diff = TTL - MILLIS.between(transaction.getTimestamp(), currentZonedDateTime);
-        Runnable invalidateTransaction = () -> removeTransaction(transaction);
-        INVALIDATION_POOL.schedule(invalidateTransaction, diff, MILLISECONDS);
+    public void insertAll(final Collection<Transaction> transactions) {
+        insertAll(transactions, clock.getAsLong());
+    }
+
+    /**
+     * @param now reading of the clock the transactions were validated against, in epoch millis
+     */
+    public void insertAll(final Collection<Transaction> transactions, final long now) {
+        long start = System.nanoTime();
+        engine.insertAll(transactions, now);
+        for (Transaction transaction : transactions) {
+            insertKeyed(transaction, now);
+        }
+        if (journal != null) {
+            int skipped = journal.appendAll(transactions, now);
+            if (skipped > 0) log.warn("Amounts of {} transactions are too large for the journal", skipped);
+        }
+        insertAllTimer.record(System.nanoTime() - start, NANOSECONDS);
+        log.debug("{} transactions added", transactions.size());
+    }
+
+    /**
+     * Inserts validated transactions without key given as parallel arrays, e.g. decoded from binary records
+     *
+     * @param amountMicros amounts in micro-units, i.e. scaled by {@code 10^6}
+     * @param now reading of the clock the transactions were validated against, in epoch millis
+     */
+    public void insertAll(final long[] timestamps, final long[] amountMicros, final int count, final long now) {
+        long start = System.nanoTime();
+        engine.insertAll(timestamps, amountMicros, count, now);
+        if (journal != null) journal.appendAll(timestamps, amountMicros, count, now);
+        insertAllTimer.record(System.nanoTime() - start, NANOSECONDS);
+        log.debug("{} transactions added", count);
     }
 
     public void wipe() {
         log.debug("Invalidating all caches");
-        writeLock.lock();
-        try {
-            GOLDEN_TRUTH_STATISTICS.set(EMPTY_STATISTICS);
-            MIN_STACK.clear();
-            MAX_STACK.clear();
-        } finally {
-            writeLock.unlock();
-        }
+        engine.wipe();
+        keyedStatistics.clear();
+        if (journal != null) journal.clear();
     }
 
-    private void addTransaction(final Transaction transaction) {
-        BigDecimal amount = transaction.getAmount();
-        Statistics newTransactionStat = new Statistics(amount, amount, amount, amount, 1);
+    @PreDestroy
+    public void close() {
+        engine.close();
+        if (journal != null) journal.close();
+    }
 
-        writeLock.lock();
-        try {
-            GOLDEN_TRUTH_STATISTICS.accumulateAndGet(newTransactionStat, MERGE_ADD);
-            if (MAX_STACK.isEmpty()) {
-                MAX_STACK.push(amount);
-            } else if (MAX_STACK.peek().compareTo(GOLDEN_TRUTH_STATISTICS.get().getMax()) < 0) {
-                MAX_STACK.push(GOLDEN_TRUTH_STATISTICS.get().getMax());
-            }
-            if (MIN_STACK.isEmpty()) {
-                MIN_STACK.push(amount);
-            } else if (MIN_STACK.peek().compareTo(GOLDEN_TRUTH_STATISTICS.get().getMin()) > 0) {
-                MIN_STACK.push(GOLDEN_TRUTH_STATISTICS.get().getMin());
-            }
-        } finally {
-            writeLock.unlock();
-        }
+    private void insertKeyed(final Transaction transaction, final long now) {
+        if (transaction.getKey() == null) return;
+        keyedStatistics.insert(transaction.getKey(),
+                transaction.getTimestamp().toInstant().toEpochMilli(), transaction.getAmount(), now);
     }
 
-    private void removeTransaction(final Transaction transaction) {
-        BigDecimal amount = transaction.getAmount();
-        Statistics newTransactionStat = new Statistics(amount, amount, amount, amount, 1);
+    private static Timer timer(final String name, final MeterRegistry registry) {
+        return Timer.builder(name)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
 
-        writeLock.lock();
-        try {
-            BigDecimal maxFromStack = MAX_STACK.peek();
-            BigDecimal minFromStack = MIN_STACK.peek();
-            if (maxFromStack != null && maxFromStack.compareTo(newTransactionStat.getMax()) == 0) {
-                MAX_STACK.pop();
-            }
-            if (minFromStack != null && minFromStack.compareTo(newTransactionStat.getMin()) == 0) {
-                MIN_STACK.pop();
-            }
-            GOLDEN_TRUTH_STATISTICS.accumulateAndGet(newTransactionStat, MERGE_SUBTRACT);
-        } finally {
-            writeLock.unlock();
+    private static StatisticsEngine createEngine(final StatisticsProperties properties,
+                                                 final MeterRegistry registry,
+                                                 final LongSupplier clock) {
+        switch (properties.getEngine()) {
+            case SCHEDULED:
+                if (properties.isPercentiles()) log.warn("Percentiles are not supported by the SCHEDULED engine");
+                return new ScheduledExpiryEngine(properties.getWindow(), properties.getExpiryTick(), registry, clock);
+            case SINGLE_WRITER:
+                if (properties.isPercentiles()) log.warn("Percentiles are not supported by the SINGLE_WRITER engine");
+                return new SingleWriterEngine(properties.getWindow(), properties.getExpiryTick(),
+                        properties.getWriterRingSize(), properties.getWriterWaitStrategy(), registry, clock);
+            case RING_BUFFER:
+            default:
+                Set<Duration> windows = new LinkedHashSet<>(properties.getWindows());
+                windows.add(properties.getWindow());
+                return new RingBufferEngine(properties.getSlotResolution(), windows, slotStoreFactory(properties),
+                        properties.isPercentiles() ? properties.getPercentileResolution() : null,
+                        properties.getFutureSkew(), properties.getAllowedLateness(), clock);
         }
     }
 
-    // avg_new = avg_old + (value_new - avg_old) / size_new
-    private static BigDecimal addToAverage(final BigDecimal prev, final BigDecimal t, final long count) {
-        BigDecimal newSize = new BigDecimal(count).setScale(CALC_SCALE, HALF_UP);
-        return prev.add((t.subtract(prev)).divide(newSize, DEFAULT_ROUNDING));
+    // replayed into the engine right away, so the repository only serves once the window is restored
+    private static TransactionJournal createJournal(final StatisticsProperties properties,
+                                                    final StatisticsEngine engine,
+                                                    final long now) {
+        if (properties.getJournalDir().isEmpty()) return null;
+
+        Duration retention = Collections.max(engine.getWindows());
+        TransactionJournal journal = new TransactionJournal(Paths.get(properties.getJournalDir()),
+                properties.getJournalSegmentRecords(), retention, properties.getFutureSkew(),
+                properties.getJournalCommitInterval());
+        long start = System.nanoTime();
+        journal.replay(now, batch -> engine.restore(batch, now));
+        log.info("Journal {} replayed in {} ms", properties.getJournalDir(), (System.nanoTime() - start) / 1_000_000);
+        return journal;
+    }
+
+    private static IntFunction<SlotStore> slotStoreFactory(final StatisticsProperties properties) {
+        IntFunction<SlotStore> stripeFactory = stripeFactory(properties);
+        int stripes = properties.getStripes();
+        return stripes > 1 ? size -> new StripedSlotStore(size, stripes, stripeFactory) : stripeFactory;
     }
 
-    // avg_new = ((avg_old * size_old) - value_new) / (size_old - 1)
-    private static BigDecimal subtractFromAverage(final BigDecimal prev, final BigDecimal t, final long count) {
-        BigDecimal oldSize = new BigDecimal(count).setScale(CALC_SCALE, HALF_UP);
-        BigDecimal newSize = new BigDecimal(count - 1).setScale(CALC_SCALE, HALF_UP);
-        return ((prev.multiply(oldSize)).subtract(t)).divide(newSize, DEFAULT_ROUNDING);
+    private static IntFunction<SlotStore> stripeFactory(final StatisticsProperties properties) {
+        if (properties.isOffHeap()) {
+            if (properties.getArithmetic() != Arithmetic.FIXED_POINT) {
+                log.warn("Off-heap slots are always fixed point, ignoring {} arithmetic", properties.getArithmetic());
+            }
+            return OffHeapSlotStore::new;
+        }
+        switch (properties.getArithmetic()) {
+            case BIG_DECIMAL:
+                return BigDecimalSlotStore::new;
+            case FIXED_POINT:
+            default:
+                return FixedPointSlotStore::new;
+        }
     }
 }
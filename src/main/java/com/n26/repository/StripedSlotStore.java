@@ -0,0 +1,62 @@
+package com.n26.repository;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Spreads writes over several independent slot stores, picked by the writing thread,
+ * so concurrent writers do not contend on the slot of the current instant.
+ * Every thread gets the next stripe round robin on its first write, so up to {@code stripes} writers never share one,
+ * unlike thread ids, which are not handed out consecutively to the threads of a pool.
+ * Readers fold every stripe, so a read costs {@code stripes * window slots}.
+ */
+class StripedSlotStore implements SlotStore {
+
+    private static final AtomicInteger NEXT_STRIPE = new AtomicInteger();
+    private static final ThreadLocal<Integer> STRIPE = ThreadLocal.withInitial(NEXT_STRIPE::getAndIncrement);
+
+    private final SlotStore[] stripes;
+    private final int mask;
+
+    StripedSlotStore(final int size, final int stripeCount, final IntFunction<SlotStore> stripeFactory) {
+        int count = stripeCount <= 1 ? 1 : Integer.highestOneBit((stripeCount - 1) << 1);
+        this.stripes = new SlotStore[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = stripeFactory.apply(size);
+        }
+    }
+
+    @Override
+    public void add(final int index, final long epoch, final BigDecimal amount) {
+        stripes[STRIPE.get() & mask].add(index, epoch, amount);
+    }
+
+    @Override
+    public void merge(final int index, final long epoch, final FixedPointAccumulator batch) {
+        stripes[STRIPE.get() & mask].merge(index, epoch, batch);
+    }
+
+    @Override
+    public void fold(final long fromEpoch, final long toEpoch, final FixedPointAccumulator into) {
+        for (SlotStore stripe : stripes) {
+            stripe.fold(fromEpoch, toEpoch, into);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (SlotStore stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    int getStripeCount() {
+        return stripes.length;
+    }
+
+    SlotStore getStripe(final int stripe) {
+        return stripes[stripe];
+    }
+}
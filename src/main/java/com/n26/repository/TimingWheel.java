@@ -0,0 +1,166 @@
+package com.n26.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed hierarchical timing wheel of deadlines in epoch millis.
+ * The lowest level is a ring of buckets one tick wide, every further level covers a whole turn of the level below
+ * with each of its buckets and is only created once a deadline needs it. A deadline goes to the lowest level
+ * whose turn reaches it, so scheduling and cancelling are O(1) list operations on a single bucket.
+ * Advancing empties the lowest level bucket of every passed tick at once, a bucket of a higher level
+ * is moved down whenever the level below completed a turn.
+ *
+ * Deadlines are rounded up to the tick, an item is never handed out before its deadline.
+ * Not thread safe, callers have to guard it.
+ */
+final class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final List<Entry<T>[]> levels = new ArrayList<>();
+    // ticks before it are handed out
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param wheelSize buckets per level, rounded up to a power of two
+     * @param now epoch millis the wheel starts at
+     */
+    TimingWheel(final long tickMillis, final int wheelSize, final long now) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive, got " + tickMillis);
+        }
+        int buckets = wheelSize <= 2 ? 2 : Integer.highestOneBit((wheelSize - 1) << 1);
+        this.tickMillis = tickMillis;
+        this.bits = Integer.numberOfTrailingZeros(buckets);
+        this.mask = buckets - 1;
+        this.currentTick = Math.floorDiv(now, tickMillis) + 1;
+        levels.add(newLevel());
+    }
+
+    /**
+     * @return handle to cancel the item, a deadline already passed is handed out with the next tick
+     */
+    Entry<T> schedule(final long deadline, final T item) {
+        Entry<T> entry = new Entry<>(-Math.floorDiv(-deadline, tickMillis), item);
+        insert(entry);
+        size++;
+        return entry;
+    }
+
+    /**
+     * @return whether the item was still pending
+     */
+    boolean cancel(final Entry<T> entry) {
+        if (entry.prev == null) return false;
+
+        entry.unlink();
+        size--;
+        return true;
+    }
+
+    /**
+     * Hands out the items of every tick up to {@code now}, one tick after another
+     */
+    void advance(final long now, final Consumer<? super T> due) {
+        long lastTick = Math.floorDiv(now, tickMillis);
+        for (; currentTick <= lastTick; currentTick++) {
+            int index = (int) (currentTick & mask);
+            if (index == 0) cascade();
+            Entry<T> bucket = levels.get(0)[index];
+            while (bucket.next != bucket) {
+                Entry<T> entry = bucket.next;
+                entry.unlink();
+                size--;
+                due.accept(entry.item);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (Entry<T>[] level : levels) {
+            for (Entry<T> bucket : level) {
+                while (bucket.next != bucket) {
+                    bucket.next.unlink();
+                }
+            }
+        }
+        size = 0;
+    }
+
+    // moves the buckets of the turn starting now down, a level only after the one below completed a turn as well
+    private void cascade() {
+        for (int level = 1; level < levels.size(); level++) {
+            int index = (int) ((currentTick >>> (bits * level)) & mask);
+            Entry<T> bucket = levels.get(level)[index];
+            while (bucket.next != bucket) {
+                Entry<T> entry = bucket.next;
+                entry.unlink();
+                insert(entry);
+            }
+            if (index != 0) return;
+        }
+    }
+
+    private void insert(final Entry<T> entry) {
+        // passed deadlines go to the bucket handed out next
+        long tick = Math.max(entry.tick, currentTick);
+        long delta = tick - currentTick;
+        int level = 0;
+        while (bits * (level + 1) < Long.SIZE - 1 && delta >>> (bits * (level + 1)) != 0) {
+            level++;
+        }
+        while (levels.size() <= level) {
+            levels.add(newLevel());
+        }
+        levels.get(level)[(int) ((tick >>> (bits * level)) & mask)].append(entry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry<T>[] newLevel() {
+        Entry<T>[] level = new Entry[mask + 1];
+        for (int i = 0; i < level.length; i++) {
+            level[i] = new Entry<>(0, null);
+            level[i].prev = level[i];
+            level[i].next = level[i];
+        }
+        return level;
+    }
+
+    /**
+     * Item of a doubly linked bucket list, every bucket is a circular list around a sentinel entry
+     */
+    static final class Entry<T> {
+
+        private final long tick;
+        private final T item;
+        private Entry<T> prev;
+        private Entry<T> next;
+
+        private Entry(final long tick, final T item) {
+            this.tick = tick;
+            this.item = item;
+        }
+
+        private void append(final Entry<T> entry) {
+            entry.prev = prev;
+            entry.next = this;
+            prev.next = entry;
+            prev = entry;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.n26.repository;
+
+import com.n26.domain.Transaction;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.time.ZoneOffset.UTC;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Append-only journal of accepted transactions in memory-mapped segment files of fixed-size records,
+ * replayed on startup so the window survives a restart.
+ *
+ * Appending claims the next record of the current segment with an atomic increment and copies the record into
+ * the mapping, concurrent appends only meet on that counter. Only rolling to a new segment takes the monitor.
+ * Written pages belong to the OS page cache and survive a crash of the process, a committer thread forces them
+ * to disk once per commit interval, so one sync covers all records appended meanwhile and a crash of the machine
+ * loses at most that interval.
+ *
+ * A segment takes appends for one retention period or until it is full. Transactions are never older than
+ * the retention and at most the future skew ahead of the clock when accepted, so a segment whose last append is
+ * a retention plus the skew ago holds only expired transactions and is deleted. Replay therefore reads at most
+ * about two retentions of appends, however long the journal has been written.
+ *
+ * A record is 32 bytes: timestamp millis, 128-bit unscaled amount, scale and a check word telling written records
+ * from unwritten ones. Appends may finish out of order, so a crash can leave a claimed record unwritten between
+ * written ones and replay skips every record failing the check. Keys are not journaled.
+ */
+@Slf4j
+final class TransactionJournal implements Closeable {
+
+    static final int RECORD_SIZE = 32;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final int REPLAY_BATCH = 4096;
+    private static final int CHECK_SEED = 0x5eed_c0de;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long retentionMillis;
+    private final long futureSkewMillis;
+    private final ScheduledExecutorService committer;
+
+    // replaced under this
+    private volatile Segment segment;
+    // rolled segment whose last appends are not forced yet, guarded by this
+    private Segment retired;
+    private volatile boolean dirty;
+
+    /**
+     * @param retention longest window, transactions older than it are not replayed
+     * @param futureSkew how far ahead of the clock timestamps are accepted
+     */
+    TransactionJournal(final Path directory,
+                       final int segmentRecords,
+                       final Duration retention,
+                       final Duration futureSkew,
+                       final Duration commitInterval) {
+        if (segmentRecords <= 0 || (long) segmentRecords * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment records must be positive and fit into 2GB, got " + segmentRecords);
+        }
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.retentionMillis = retention.toMillis();
+        this.futureSkewMillis = futureSkew.toMillis();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal directory " + directory + " can not be created", e);
+        }
+
+        this.committer = newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = commitInterval.toMillis();
+        committer.scheduleWithFixedDelay(this::commit, interval, interval, MILLISECONDS);
+    }
+
+    /**
+     * Passes transactions of the retention ending at {@code now} to the sink in batches,
+     * segments holding only expired transactions are deleted
+     */
+    void replay(final long now, final Consumer<List<Transaction>> sink) {
+        expire(now);
+        List<Path> segments = segments();
+        long replayed = 0;
+        for (Path path : segments) {
+            replayed += replay(path, now - retentionMillis, sink);
+        }
+        log.info("Replayed {} journaled transactions from {} segments", replayed, segments.size());
+    }
+
+    /**
+     * @return {@code false} if the amount needs more than 128 bits and was not journaled
+     */
+    boolean append(final Transaction transaction, final long now) {
+        return write(transaction, now);
+    }
+
+    /**
+     * @return number of transactions which were not journaled
+     */
+    int appendAll(final Collection<Transaction> transactions, final long now) {
+        int skipped = 0;
+        for (Transaction transaction : transactions) {
+            if (!write(transaction, now)) skipped++;
+        }
+        return skipped;
+    }
+
+    /**
+     * Appends transactions given as parallel arrays, micro-units always fit into a record
+     */
+    void appendAll(final long[] timestamps, final long[] amountMicros, final int count, final long now) {
+        for (int i = 0; i < count; i++) {
+            write(timestamps[i], amountMicros[i] >> (Long.SIZE - 1), amountMicros[i], FixedPointAccumulator.MICRO_SCALE, now);
+        }
+    }
+
+    /**
+     * Deletes every segment, the next append starts a new one
+     */
+    synchronized void clear() {
+        segment = null;
+        retired = null;
+        dirty = false;
+        for (Path path : segments()) {
+            delete(path);
+        }
+    }
+
+    @Override
+    public void close() {
+        committer.shutdown();
+        commit();
+    }
+
+    private boolean write(final Transaction transaction, final long now) {
+        BigDecimal amount = transaction.getAmount();
+        BigInteger unscaled = amount.unscaledValue();
+        if (unscaled.bitLength() > 127) return false;
+
+        write(transaction.getTimestamp().toInstant().toEpochMilli(),
+                unscaled.shiftRight(Long.SIZE).longValue(), unscaled.longValue(), amount.scale(), now);
+        return true;
+    }
+
+    private void write(final long timestamp, final long high, final long low, final int scale, final long now) {
+        while (true) {
+            Segment current = segment;
+            if (current != null && now - current.start < retentionMillis) {
+                int record = current.claim();
+                if (record >= 0) {
+                    current.put(record, timestamp, high, low, scale);
+                    dirty = true;
+                    return;
+                }
+            }
+            roll(current, now);
+        }
+    }
+
+    // only the first of the appends finding the segment full or too old rolls it
+    private synchronized void roll(final Segment current, final long now) {
+        if (segment != current) return;
+        // appends may still finish on the rolled segment, the next commit forces it
+        if (current != null) retired = current;
+        // the start is unique within the directory, it orders the segments
+        long start = current == null ? now : Math.max(now, current.start + 1);
+        segment = new Segment(directory.resolve(PREFIX + start + SUFFIX), start, segmentRecords);
+        dirty = true;
+        expire(now);
+    }
+
+    /**
+     * A segment stopped taking appends when the next one was started, a retention later all its transactions expired,
+     * unless they were ahead of the clock by up to the future skew
+     */
+    private void expire(final long now) {
+        List<Path> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (startOf(segments.get(i + 1)) <= now - retentionMillis - futureSkewMillis) delete(segments.get(i));
+        }
+    }
+
+    private void commit() {
+        Segment current;
+        Segment rolled;
+        synchronized (this) {
+            if (!dirty) return;
+            dirty = false;
+            current = segment;
+            rolled = retired;
+            retired = null;
+        }
+        // outside the lock, appends continue while the pages are written
+        if (rolled != null) rolled.buffer.force();
+        if (current != null) current.buffer.force();
+    }
+
+    private long replay(final Path path, final long oldest, final Consumer<List<Transaction>> sink) {
+        long replayed = 0;
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            List<Transaction> batch = new ArrayList<>(REPLAY_BATCH);
+            for (int offset = 0; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                long timestamp = buffer.getLong(offset);
+                long high = buffer.getLong(offset + 8);
+                long low = buffer.getLong(offset + 16);
+                int scale = buffer.getInt(offset + 24);
+                // unwritten records are zeroed or torn, written ones may follow them
+                if (buffer.getInt(offset + 28) != check(timestamp, high, low, scale)) continue;
+                if (timestamp <= oldest) continue;
+
+                batch.add(new Transaction(amount(high, low, scale), Instant.ofEpochMilli(timestamp).atZone(UTC)));
+                if (batch.size() == REPLAY_BATCH) {
+                    sink.accept(batch);
+                    replayed += batch.size();
+                    batch = new ArrayList<>(REPLAY_BATCH);
+                }
+            }
+            if (!batch.isEmpty()) sink.accept(batch);
+            return replayed + batch.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal segment " + path + " can not be read", e);
+        }
+    }
+
+    private List<Path> segments() {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(segments::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal directory " + directory + " can not be listed", e);
+        }
+        segments.sort((a, b) -> Long.compare(startOf(a), startOf(b)));
+        return segments;
+    }
+
+    private static long startOf(final Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static void delete(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Journal segment {} can not be deleted", path, e);
+        }
+    }
+
+    static BigDecimal amount(final long high, final long low, final int scale) {
+        // high is only the sign extension of low for amounts fitting a long
+        if (high == low >> 63) return BigDecimal.valueOf(low, scale);
+        BigInteger unscaled = BigInteger.valueOf(high).shiftLeft(Long.SIZE)
+                .or(BigInteger.valueOf(low >>> 1).shiftLeft(1))
+                .or(BigInteger.valueOf(low & 1));
+        return new BigDecimal(unscaled, scale);
+    }
+
+    // the seed keeps a zeroed record from passing the check
+    static int check(final long timestamp, final long high, final long low, final int scale) {
+        long hash = CHECK_SEED;
+        hash = hash * 0x9e3779b97f4a7c15L + timestamp;
+        hash = hash * 0x9e3779b97f4a7c15L + high;
+        hash = hash * 0x9e3779b97f4a7c15L + low;
+        hash = hash * 0x9e3779b97f4a7c15L + scale;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static final class Segment {
+
+        private final long start;
+        private final int records;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger claimed = new AtomicInteger();
+
+        private Segment(final Path path, final long start, final int records) {
+            this.start = start;
+            this.records = records;
+            try (FileChannel channel = FileChannel.open(path, CREATE_NEW, READ, WRITE)) {
+                // the mapping stays valid after the channel is closed
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) records * RECORD_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Journal segment " + path + " can not be created", e);
+            }
+        }
+
+        /**
+         * @return index of the record to write or -1 if the segment is full
+         */
+        private int claim() {
+            // claims beyond a full segment only grow the counter, they never wrap to a valid index
+            if (claimed.get() >= records) return -1;
+            int record = claimed.getAndIncrement();
+            return record < records ? record : -1;
+        }
+
+        // absolute puts leave the buffer state alone, so appends to distinct records do not interfere
+        private void put(final int record, final long timestamp, final long high, final long low, final int scale) {
+            // the check word goes last, a record torn before it fails the check
+            int offset = record * RECORD_SIZE;
+            buffer.putLong(offset, timestamp);
+            buffer.putLong(offset + 8, high);
+            buffer.putLong(offset + 16, low);
+            buffer.putInt(offset + 24, scale);
+            buffer.putInt(offset + 28, check(timestamp, high, low, scale));
+        }
+    }
+}
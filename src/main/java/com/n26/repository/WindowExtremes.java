@@ -0,0 +1,115 @@
+package com.n26.repository;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Exact min/max of the window, kept per millisecond of transaction time and summarised per second.
+ * A bucket is overwritten once its millisecond leaves the window, so memory is bounded by the window length.
+ * Adding is O(1), a query folds the summaries of complete seconds and at most one second of buckets.
+ *
+ * Not thread safe, callers have to guard it.
+ */
+final class WindowExtremes {
+
+    private static final int GROUP_MILLIS = 1000;
+
+    private final long windowMillis;
+    private final long[] slotEpochs;
+    private final BigDecimal[] slotMins;
+    private final BigDecimal[] slotMaxs;
+
+    private final long[] groupEpochs;
+    private final BigDecimal[] groupMins;
+    private final BigDecimal[] groupMaxs;
+
+    private BigDecimal min;
+    private BigDecimal max;
+
+    WindowExtremes(final long windowMillis) {
+        this.windowMillis = windowMillis;
+        int slots = Math.toIntExact(windowMillis);
+        this.slotEpochs = new long[slots];
+        this.slotMins = new BigDecimal[slots];
+        this.slotMaxs = new BigDecimal[slots];
+
+        // one more group than the window covers, the oldest one is usually only partially inside
+        int groups = (int) (windowMillis / GROUP_MILLIS) + 1;
+        this.groupEpochs = new long[groups];
+        this.groupMins = new BigDecimal[groups];
+        this.groupMaxs = new BigDecimal[groups];
+        clear();
+    }
+
+    void add(final long timestamp, final BigDecimal amount) {
+        int slot = (int) Math.floorMod(timestamp, windowMillis);
+        if (slotEpochs[slot] > timestamp) return; // bucket already reused, transaction is outdated
+        if (slotEpochs[slot] < timestamp) {
+            slotEpochs[slot] = timestamp;
+            slotMins[slot] = amount;
+            slotMaxs[slot] = amount;
+        } else {
+            slotMins[slot] = slotMins[slot].min(amount);
+            slotMaxs[slot] = slotMaxs[slot].max(amount);
+        }
+
+        long epoch = Math.floorDiv(timestamp, GROUP_MILLIS);
+        int group = (int) Math.floorMod(epoch, (long) groupEpochs.length);
+        if (groupEpochs[group] < epoch) {
+            groupEpochs[group] = epoch;
+            groupMins[group] = amount;
+            groupMaxs[group] = amount;
+        } else if (groupEpochs[group] == epoch) {
+            groupMins[group] = groupMins[group].min(amount);
+            groupMaxs[group] = groupMaxs[group].max(amount);
+        }
+    }
+
+    /**
+     * Recalculates extremes of transactions with timestamps in {@code (now - window, now]},
+     * read them with {@link #getMin()} and {@link #getMax()}
+     */
+    void query(final long now) {
+        min = null;
+        max = null;
+
+        long oldest = now - windowMillis + 1;
+        long oldestGroup = Math.floorDiv(oldest, GROUP_MILLIS);
+        long newestGroup = Math.floorDiv(now, GROUP_MILLIS);
+
+        long partialEnd = Math.min(now, (oldestGroup + 1) * GROUP_MILLIS - 1);
+        for (long timestamp = oldest; timestamp <= partialEnd; timestamp++) {
+            int slot = (int) Math.floorMod(timestamp, windowMillis);
+            if (slotEpochs[slot] == timestamp) merge(slotMins[slot], slotMaxs[slot]);
+        }
+
+        for (long epoch = oldestGroup + 1; epoch <= newestGroup; epoch++) {
+            int group = (int) Math.floorMod(epoch, (long) groupEpochs.length);
+            if (groupEpochs[group] == epoch) merge(groupMins[group], groupMaxs[group]);
+        }
+    }
+
+    BigDecimal getMin() {
+        return min;
+    }
+
+    BigDecimal getMax() {
+        return max;
+    }
+
+    void clear() {
+        Arrays.fill(slotEpochs, Long.MIN_VALUE);
+        Arrays.fill(slotMins, null);
+        Arrays.fill(slotMaxs, null);
+        Arrays.fill(groupEpochs, Long.MIN_VALUE);
+        Arrays.fill(groupMins, null);
+        Arrays.fill(groupMaxs, null);
+        min = null;
+        max = null;
+    }
+
+    private void merge(final BigDecimal otherMin, final BigDecimal otherMax) {
+        min = min == null ? otherMin : min.min(otherMin);
+        max = max == null ? otherMax : max.max(otherMax);
+    }
+}
@@ -6,6 +6,10 @@ import com.n26.repository.StatisticsRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+
 @AllArgsConstructor
 @Service
 public class StatisticsService {
@@ -15,10 +19,48 @@ public class StatisticsService {
         return statisticsRepository.getStatistics();
     }
 
+    public Statistics getStatistics(final Duration window) {
+        return statisticsRepository.getStatistics(window);
+    }
+
+    public Statistics getStatistics(final String key) {
+        return statisticsRepository.getStatistics(key);
+    }
+
+    public Set<Duration> getWindows() {
+        return statisticsRepository.getWindows();
+    }
+
+    public long getVersion() {
+        return statisticsRepository.getVersion();
+    }
+
     public void add(final Transaction transaction) {
         statisticsRepository.insert(transaction);
     }
 
+    /**
+     * @param now reading of the clock the transaction was validated against, in epoch millis
+     */
+    public void add(final Transaction transaction, final long now) {
+        statisticsRepository.insert(transaction, now);
+    }
+
+    /**
+     * @param now reading of the clock the transactions were validated against, in epoch millis
+     */
+    public void addAll(final Collection<Transaction> transactions, final long now) {
+        statisticsRepository.insertAll(transactions, now);
+    }
+
+    /**
+     * @param amountMicros amounts in micro-units, i.e. scaled by {@code 10^6}
+     * @param now reading of the clock the transactions were validated against, in epoch millis
+     */
+    public void addAll(final long[] timestamps, final long[] amountMicros, final int count, final long now) {
+        statisticsRepository.insertAll(timestamps, amountMicros, count, now);
+    }
+
     public void wipeStatistics() {
         statisticsRepository.wipe();
     }